@@ -0,0 +1,43 @@
+/*
+ * Copyright 2013 Michael Heinrichs, http://netopyr.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netopyr.javafx.ik;
+
+/**
+ * Helper methods for angles in degrees.
+ */
+final class Angles {
+
+    private Angles() {
+    }
+
+    /**
+     * Normalizes an angle, which is at most one turn out of range, to the
+     * range (-180, 180].
+     *
+     * @param value The angle in degrees
+     * @return the normalized angle
+     */
+    static double borderAngle(double value) {
+        if (value <= -180) {
+            return value + 360;
+        }
+        if (value > 180) {
+            return value - 360;
+        }
+        return value;
+    }
+}
@@ -16,19 +16,18 @@
 
 package com.netopyr.javafx.ik;
 
-import javafx.beans.binding.Bindings;
-import javafx.beans.binding.DoubleBinding;
+import javafx.beans.InvalidationListener;
+import javafx.beans.Observable;
 import javafx.beans.property.*;
-import javafx.beans.value.ChangeListener;
-import javafx.beans.value.ObservableValue;
 import javafx.collections.FXCollections;
 import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 import javafx.geometry.Point2D;
-import javafx.scene.Group;
 import javafx.scene.Node;
-import javafx.scene.transform.Rotate;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
 
 /**
@@ -126,10 +125,40 @@ public class Bone {
      * <p>
      * If this {@code Bone} is translated or rotated, the {@code Node} objects in
      * {@code content} are updated accordingly.
+     * <p>
+     * The list and the {@code Node} that represents this {@code Bone} in the
+     * scenegraph are created lazily. A {@code Bone} without content has no
+     * representation in the scenegraph at all.
      */
-    private ListProperty<Node> content = new SimpleListProperty<>(this, "content", FXCollections.<Node>observableArrayList());
-    public final ObservableList<Node> getContent() {return content.get();}
-    public final void setContent(ObservableList<Node> list) {this.content.set(list);}
+    private ListProperty<Node> content;
+    public final ObservableList<Node> getContent() {return getContentProperty().get();}
+    public final void setContent(ObservableList<Node> list) {getContentProperty().set(list);}
+
+    private ListProperty<Node> getContentProperty() {
+        if (content == null) {
+            content = new SimpleListProperty<>(this, "content", FXCollections.<Node>observableArrayList());
+            content.addListener(new InvalidationListener() {
+                @Override
+                public void invalidated(Observable observable) {
+                    if ((view == null) && !content.isEmpty()) {
+                        createView();
+                    }
+                }
+            });
+        }
+        return content;
+    }
+
+    private BoneView view;
+    BoneView getView() {return view;}
+
+    private void createView() {
+        view = new BoneView(this, content);
+        final Skeleton skeleton = getSkeleton();
+        if ((skeleton != null) && (getIndex() >= 0)) {
+            skeleton.addView(view);
+        }
+    }
 
 
     /**
@@ -152,22 +181,19 @@ public class Bone {
         protected void invalidated() {
             final Skeleton newSkeleton = get();
             if ((newSkeleton == null)? oldSkeleton != null : !newSkeleton.equals(oldSkeleton)) {
+                if (assembling || propagating) {
+                    oldSkeleton = newSkeleton;
+                    return;
+                }
                 if (oldSkeleton != null) {
-                    oldSkeleton.getBonesWritable().remove(Bone.this);
+                    oldSkeleton.removeBone(Bone.this);
                 }
                 if (newSkeleton != null) {
-                    newSkeleton.getBonesWritable().add(Bone.this);
-                }
-                final Bone parentBone = getParent();
-                if (parentBone != null) {
-                    parentBone.setSkeleton(newSkeleton);
-                }
-                for (final Bone child : children) {
-                    if (child != null) {
-                        child.setSkeleton(newSkeleton);
-                    }
+                    newSkeleton.addBone(Bone.this);
                 }
+                final Skeleton previousSkeleton = oldSkeleton;
                 oldSkeleton = newSkeleton;
+                propagateSkeleton(previousSkeleton, newSkeleton);
             }
         }
 
@@ -185,6 +211,75 @@ public class Bone {
     public final void setSkeleton(Skeleton skeleton) {this.skeleton.set(skeleton);}
     public final ObjectProperty<Skeleton> skeletonProperty() {return skeleton;}
 
+    /**
+     * The id of this {@code Bone} within its {@link Skeleton}.
+     * <p>
+     * The id is assigned when the {@code Bone} is added to a {@code Skeleton}
+     * and does not change until it is removed again. It can be used to look up
+     * the {@code Bone} with {@link Skeleton#getBone(int)}. A {@code Bone}
+     * without a {@code Skeleton} has the id -1.
+     */
+    private int id = -1;
+    public final int getId() {return id;}
+    void setId(int id) {this.id = id;}
+
+    /**
+     * The position of this {@code Bone} in {@link Skeleton#getBones()}.
+     */
+    private int index = -1;
+    int getIndex() {return index;}
+    void setIndex(int index) {this.index = index;}
+
+    /**
+     * The optional name of this {@code Bone}.
+     * <p>
+     * A named {@code Bone} can be looked up with {@link Skeleton#getBone(String)}.
+     */
+    private StringProperty name;
+    public final String getName() {return (name == null)? null : name.get();}
+    public final void setName(String value) {
+        if ((name != null) || (value != null)) {
+            nameProperty().set(value);
+        }
+    }
+    public final StringProperty nameProperty() {
+        if (name == null) {
+            name = new StringPropertyBase() {
+                private String oldName = null;
+
+                @Override
+                protected void invalidated() {
+                    final String newName = get();
+                    final Skeleton skeleton = getSkeleton();
+                    if ((skeleton != null) && !assembling) {
+                        skeleton.renameBone(Bone.this, oldName, newName);
+                    }
+                    oldName = newName;
+                }
+
+                @Override
+                public Object getBean() {
+                    return Bone.this;
+                }
+
+                @Override
+                public String getName() {
+                    return "name";
+                }
+            };
+        }
+        return name;
+    }
+
+    /**
+     * Defines whether this {@code Bone} can be found with
+     * {@link Skeleton#pickJoint(double, double, double)} and
+     * {@link Skeleton#pickBone(double, double, double)}.
+     */
+    private boolean pickable = true;
+    public final boolean isPickable() {return pickable;}
+    public final void setPickable(boolean pickable) {this.pickable = pickable;}
+
     /**
      * The parent-{@code Bone} of this {@code Bone}.
      */
@@ -200,8 +295,19 @@ public class Bone {
     public final void setChildren(ObservableList<Bone> children) {this.children.set(children);}
     public final ListProperty<Bone> childrenProperty() {return children;}
 
-    private final Group group = new Group();
-    Node getGroup() {return group;}
+    /**
+     * Set while a {@link SkeletonBuilder} assembles this {@code Bone}. Changes
+     * of the parent and the {@link Skeleton} are recorded, but neither
+     * propagated nor used to recalculate the pose.
+     */
+    private boolean assembling;
+
+    /**
+     * Set while the {@link Skeleton} of this {@code Bone} is updated together
+     * with the {@code Skeleton} of a connected {@code Bone}. The registration
+     * in the {@code Skeleton} is done in bulk afterwards.
+     */
+    private boolean propagating;
 
     public Bone(double length, double angle, double minAngle, double maxAngle) {
         this.length   = length;
@@ -209,34 +315,6 @@ public class Bone {
         this.maxAngle = maxAngle;
         this.angle.set(angle);
 
-        final Rotate rotate = new Rotate(getRotate(), 0.0, 0.0);
-        rotate.angleProperty().bind(rotateProperty());
-        group.getTransforms().setAll(rotate);
-
-        group.translateXProperty().bind(new DoubleBinding() {
-            { super.bind(currentHeadProperty()); }
-            @Override
-            protected double computeValue() {
-                return getCurrentHead().getX();
-            }
-        });
-        group.translateYProperty().bind(new DoubleBinding() {
-            { super.bind(currentHeadProperty()); }
-            @Override
-            protected double computeValue() {
-                return getCurrentHead().getY();
-            }
-        });
-        content.addListener(new ChangeListener<ObservableList<? extends Node>>() {
-            @Override
-            public void changed(ObservableValue<? extends ObservableList<? extends Node>> observableValue, ObservableList<? extends Node> oldList, ObservableList<? extends Node> newList) {
-                if (oldList != newList) {
-                    Bindings.unbindContent(group.getChildren(), oldList);
-                    Bindings.bindContent(group.getChildren(), newList);
-                }
-            }
-        });
-        Bindings.bindContent(group.getChildren(), content.get());
         children.addListener(new ListChangeListener<Bone>() {
             @Override
             public void onChanged(Change<? extends Bone> change) {
@@ -269,17 +347,47 @@ public class Bone {
     }
 
     public void moveHead(Point2D p) {
-        moveHead(p, null);
+        if (!defer(BoneEnd.HEAD, p.getX(), p.getY())) {
+            applyHead(p);
+        }
     }
     public void moveHead(double x, double y) {
-        moveHead(new Point2D(x, y), null);
+        if (!defer(BoneEnd.HEAD, x, y)) {
+            applyHead(new Point2D(x, y));
+        }
     }
 
     public void moveTail(Point2D p) {
-        moveTail(p, null);
+        if (!defer(BoneEnd.TAIL, p.getX(), p.getY())) {
+            applyTail(p);
+        }
     }
     public void moveTail(double x, double y) {
-        moveTail(new Point2D(x, y), null);
+        if (!defer(BoneEnd.TAIL, x, y)) {
+            applyTail(new Point2D(x, y));
+        }
+    }
+
+    void applyHead(Point2D p) {
+        beginSolve();
+        moveHead(p, null);
+    }
+
+    void applyTail(Point2D p) {
+        beginSolve();
+        moveTail(p, null);
+    }
+
+    private boolean defer(BoneEnd end, double x, double y) {
+        final Skeleton skeleton = getSkeleton();
+        return (skeleton != null) && skeleton.defer(this, end, x, y);
+    }
+
+    private void beginSolve() {
+        final Skeleton skeleton = getSkeleton();
+        if (skeleton != null) {
+            skeleton.beginSolve();
+        }
     }
 
     private void moveHead(Point2D point, Bone initiator) {
@@ -294,15 +402,17 @@ public class Bone {
             final double maxAngle = getMaxAngle();
             if ((initiator != null) && ((minAngle > -180) || (maxAngle < 180))) {
                 final double initiatorRotate = initiator.getRotate();
-                final double angle = Math.max(minAngle, Math.min(borderAngle(rotateValue - initiatorRotate), maxAngle));
+                final double angle = Math.max(minAngle, Math.min(Angles.borderAngle(rotateValue - initiatorRotate), maxAngle));
                 this.angle.set(angle);
-                rotate.set(borderAngle(initiatorRotate + angle));
+                rotate.set(Angles.borderAngle(initiatorRotate + angle));
                 currentTail.set(createPoint2D(point, getRotate() * Math.PI / 180.0, getLength()));
+                resolveTailCollision(point);
             } else {
                 rotate.set(rotateValue);
                 currentTail.set(createPoint2D(point, alpha, getLength()));
+                resolveTailCollision(point);
                 if ((initiator == null) && (parent != null)) {
-                    angle.set(borderAngle(rotateValue - parent.getRotate()));
+                    angle.set(Angles.borderAngle(getRotate() - parent.getRotate()));
                     parent.moveTail(point, this);
                 }
             }
@@ -317,27 +427,72 @@ public class Bone {
         if (!getCurrentTail().equals(point)) {
             currentTail.set(point);
             double alpha = getAngle(point, getCurrentHead());
-            double rotateValue = borderAngle(180.0 + 180 * alpha / Math.PI);
+            double rotateValue = Angles.borderAngle(180.0 + 180 * alpha / Math.PI);
             if (initiator != null) {
                 final double minAngle = initiator.getMinAngle();
                 final double maxAngle = initiator.getMaxAngle();
                 if ((minAngle > -180) || (maxAngle < 180)) {
                     final double initiatorRotate = initiator.getRotate();
-                    final double childAngle = Math.max(minAngle, Math.min(borderAngle(initiatorRotate - rotateValue), maxAngle));
-                    rotateValue = borderAngle(initiatorRotate - childAngle);
+                    final double childAngle = Math.max(minAngle, Math.min(Angles.borderAngle(initiatorRotate - rotateValue), maxAngle));
+                    rotateValue = Angles.borderAngle(initiatorRotate - childAngle);
                     alpha = (rotateValue - 180) * Math.PI / 180.0;
                 }
             }
             rotate.set(rotateValue);
             currentHead.set(createPoint2D(point, alpha, getLength()));
+            resolveHeadCollision(point);
             if (parent != null) {
-                angle.set(borderAngle(rotateValue - parent.getRotate()));
+                angle.set(Angles.borderAngle(getRotate() - parent.getRotate()));
                 parent.moveTail(getCurrentHead(), this);
             }
             updateChildren(initiator);
         }
     }
 
+    private void resolveTailCollision(Point2D head) {
+        final Skeleton skeleton = getSkeleton();
+        if (skeleton != null) {
+            final Point2D tail = getCurrentTail();
+            final Point2D resolved = skeleton.resolveCollision(this, BoneEnd.TAIL, head, tail, getLength());
+            if (resolved != tail) {
+                final double rotateValue = 180 * getAngle(head, resolved) / Math.PI;
+                rotate.set(rotateValue);
+                final Bone parent = getParent();
+                if (parent != null) {
+                    angle.set(Angles.borderAngle(rotateValue - parent.getRotate()));
+                }
+                currentTail.set(resolved);
+            }
+        }
+    }
+
+    private void resolveHeadCollision(Point2D tail) {
+        final Skeleton skeleton = getSkeleton();
+        if (skeleton != null) {
+            final Point2D head = getCurrentHead();
+            final Point2D resolved = skeleton.resolveCollision(this, BoneEnd.HEAD, tail, head, getLength());
+            if (resolved != head) {
+                rotate.set(Angles.borderAngle(180.0 + 180 * getAngle(tail, resolved) / Math.PI));
+                currentHead.set(resolved);
+            }
+        }
+    }
+
+    void beginAssembly() {
+        assembling = true;
+    }
+
+    void endAssembly(Skeleton skeleton) {
+        assert assembling;
+        setSkeleton(skeleton);
+        final Bone parent = getParent();
+        if (parent != null) {
+            currentHead.set(parent.getCurrentTail());
+        }
+        updatePose();
+        assembling = false;
+    }
+
     private void resetFromParent() {
         final Bone parent = getParent();
         setSkeleton(parent.getSkeleton());
@@ -346,16 +501,96 @@ public class Bone {
     }
 
     private void setup() {
+        final Deque<Bone> pending = new ArrayDeque<>();
+        pending.push(this);
+        while (!pending.isEmpty()) {
+            final Bone bone = pending.pop();
+            if (bone != this) {
+                bone.currentHead.set(bone.getParent().getCurrentTail());
+            }
+            bone.updatePose();
+            for (final Bone child : bone.children) {
+                pending.push(child);
+            }
+        }
+    }
+
+    private void propagateSkeleton(Skeleton oldSkeleton, Skeleton newSkeleton) {
+        final List<Bone> moved = new ArrayList<>();
+        final Deque<Bone> pending = new ArrayDeque<>();
+        pending.push(this);
+        while (!pending.isEmpty()) {
+            final Bone bone = pending.pop();
+            propagateSkeleton(bone.getParent(), oldSkeleton, newSkeleton, moved, pending);
+            for (final Bone child : bone.children) {
+                propagateSkeleton(child, oldSkeleton, newSkeleton, moved, pending);
+            }
+        }
+        if (!moved.isEmpty()) {
+            if (oldSkeleton != null) {
+                oldSkeleton.removeBones(moved);
+            }
+            if (newSkeleton != null) {
+                newSkeleton.addBones(moved);
+            }
+        }
+    }
+
+    private static void propagateSkeleton(Bone bone, Skeleton oldSkeleton, Skeleton newSkeleton, List<Bone> moved, Deque<Bone> pending) {
+        if (bone != null) {
+            final Skeleton skeleton = bone.getSkeleton();
+            if (skeleton == oldSkeleton) {
+                // connected Bone objects are moved together and registered in bulk
+                bone.propagating = true;
+                try {
+                    bone.setSkeleton(newSkeleton);
+                } finally {
+                    bone.propagating = false;
+                }
+                moved.add(bone);
+                pending.push(bone);
+            } else if (skeleton != newSkeleton) {
+                bone.setSkeleton(newSkeleton);
+            }
+        }
+    }
+
+    private void updatePose() {
         final Bone parent = getParent();
-        final double rotateValue = (parent == null)? getAngle() : borderAngle (parent.getRotate() + getAngle());
+        final double rotateValue = (parent == null)? getAngle() : Angles.borderAngle(parent.getRotate() + getAngle());
         rotate.set(rotateValue);
         currentTail.set(createPoint2D(getCurrentHead(), Math.PI * rotateValue / 180.0, getLength()));
-        for (final Bone child : children) {
-            child.resetFromParent();
+    }
+
+    void setPose(Point2D head, Point2D tail, double rotateValue, double angleValue) {
+        currentHead.set(head);
+        rotate.set(rotateValue);
+        angle.set(angleValue);
+        currentTail.set(tail);
+    }
+
+    /**
+     * Sets the pose without propagating it. Values which did not change are
+     * skipped, therefore every property fires at most one event.
+     */
+    void setPose(double headX, double headY, double tailX, double tailY, double rotateValue, double angleValue) {
+        final Point2D head = getCurrentHead();
+        if ((head.getX() != headX) || (head.getY() != headY)) {
+            currentHead.set(new Point2D(headX, headY));
+        }
+        if (getRotate() != rotateValue) {
+            rotate.set(rotateValue);
+        }
+        if (getAngle() != angleValue) {
+            angle.set(angleValue);
+        }
+        final Point2D tail = getCurrentTail();
+        if ((tail.getX() != tailX) || (tail.getY() != tailY)) {
+            currentTail.set(new Point2D(tailX, tailY));
         }
     }
 
-    private void updateChildren(Bone initiator) {
+    void updateChildren(Bone initiator) {
         final Point2D currentTail = getCurrentTail();
         for (final Bone bone : getChildren()) {
             if (!bone.equals(initiator)) {
@@ -364,16 +599,6 @@ public class Bone {
         }
     }
 
-    private double borderAngle(double value) {
-        if (value <= -180) {
-            return value + 360;
-        }
-        if (value > 180) {
-            return value - 360;
-        }
-        return value;
-    }
-
     private static Point2D createPoint2D(Point2D origin, double angle, double length) {
         return new Point2D(origin.getX() + Math.cos(angle) * length, origin.getY() + Math.sin(angle) * length);
     }
@@ -395,6 +620,10 @@ public class Bone {
         protected void set(Point2D value) {
             this.value = value;
             fireValueChangedEvent();
+            final Skeleton skeleton = getSkeleton();
+            if (skeleton != null) {
+                skeleton.boneMoved(Bone.this);
+            }
         }
 
         @Override
@@ -455,6 +684,10 @@ public class Bone {
             final Bone oldValue = value;
             if ((newValue == null)? oldValue != null : !newValue.equals(oldValue)) {
                 value = newValue;
+                if (assembling) {
+                    fireValueChangedEvent();
+                    return;
+                }
                 if (oldValue != null) {
                     oldValue.getChildren().remove(Bone.this);
                 }
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2013 Michael Heinrichs, http://netopyr.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netopyr.javafx.ik;
+
+import javafx.geometry.Point2D;
+
+/**
+ * A chain of {@link Bone} objects from a {@code Bone} to one of its
+ * descendants, together with the constants of each {@code Bone}.
+ * <p>
+ * The angle of the first {@code Bone} is only limited, if it has a parent.
+ * The angle of a root is its absolute rotation, which is not limited.
+ */
+final class BoneChain {
+
+    final Bone[] bones;
+    final double[] lengths;
+    final double[] minAngles;
+    final double[] maxAngles;
+    final boolean[] limited;
+
+    /**
+     * The constructor of {@code BoneChain}
+     *
+     * @param first The first {@link Bone} of the chain
+     * @param last The last {@code Bone} of the chain, either {@code first} itself or one of its descendants
+     * @param message The message of the {@code IllegalArgumentException} thrown, if {@code first} is not an ancestor of {@code last}
+     */
+    BoneChain(Bone first, Bone last, String message) {
+        int size = 1;
+        Bone iterator = last;
+        while (iterator != first) {
+            iterator = iterator.getParent();
+            if (iterator == null) {
+                throw new IllegalArgumentException(message);
+            }
+            size++;
+        }
+        bones = new Bone[size];
+        iterator = last;
+        for (int i = size - 1; i >= 0; i--) {
+            bones[i] = iterator;
+            iterator = iterator.getParent();
+        }
+
+        lengths = new double[size];
+        minAngles = new double[size];
+        maxAngles = new double[size];
+        limited = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            final Bone bone = bones[i];
+            lengths[i] = bone.getLength();
+            minAngles[i] = bone.getMinAngle();
+            maxAngles[i] = bone.getMaxAngle();
+            limited[i] = ((i > 0) || (bone.getParent() != null)) && ((minAngles[i] > -180) || (maxAngles[i] < 180));
+        }
+    }
+
+    int size() {return bones.length;}
+    Bone getFirst() {return bones[0];}
+    Bone getLast() {return bones[bones.length - 1];}
+
+    /**
+     * Returns the rotation of the parent of the first {@link Bone} or 0, if it is a root.
+     */
+    double getParentRotate() {
+        final Bone parent = bones[0].getParent();
+        return (parent == null)? 0.0 : parent.getRotate();
+    }
+
+    /**
+     * Writes a pose to all {@link Bone} objects of the chain and moves the
+     * attached subtrees along.
+     *
+     * @param head The new head of the first {@code Bone}
+     * @param x The x-coordinates of the joints, index {@code i + 1} is the tail of the {@code i}-th {@code Bone}
+     * @param y The y-coordinates of the joints, index {@code i + 1} is the tail of the {@code i}-th {@code Bone}
+     * @param rotates The new rotations
+     * @param angles The new angles
+     */
+    void store(Point2D head, double[] x, double[] y, double[] rotates, double[] angles) {
+        final int n = bones.length;
+        Point2D current = head;
+        for (int i = 0; i < n; i++) {
+            final Point2D tail = new Point2D(x[i + 1], y[i + 1]);
+            bones[i].setPose(current, tail, rotates[i], angles[i]);
+            current = tail;
+        }
+        for (int i = 0; i < n; i++) {
+            bones[i].updateChildren((i < n - 1)? bones[i + 1] : null);
+        }
+    }
+}
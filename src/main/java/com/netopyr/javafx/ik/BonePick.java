@@ -0,0 +1,60 @@
+/*
+ * Copyright 2013 Michael Heinrichs, http://netopyr.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netopyr.javafx.ik;
+
+import javafx.geometry.Point2D;
+
+/**
+ * The result of picking a {@link Bone} or one of its joints with
+ * {@link Skeleton#pickJoint(double, double, double)} or
+ * {@link Skeleton#pickBone(double, double, double)}.
+ */
+public final class BonePick {
+
+    /**
+     * The {@link Bone} that was picked.
+     */
+    private final Bone bone;
+    public Bone getBone() {return bone;}
+
+    /**
+     * The end of the {@link Bone} that was picked or {@code null}, if the
+     * segment of the {@code Bone} was picked.
+     */
+    private final BoneEnd end;
+    public BoneEnd getEnd() {return end;}
+
+    /**
+     * The point of the {@link Bone} closest to the picked position, in local
+     * coordinates of the {@link Skeleton}.
+     */
+    private final Point2D point;
+    public Point2D getPoint() {return point;}
+
+    /**
+     * The distance between the picked position and {@link #point}.
+     */
+    private final double distance;
+    public double getDistance() {return distance;}
+
+    BonePick(Bone bone, BoneEnd end, Point2D point, double distance) {
+        this.bone = bone;
+        this.end = end;
+        this.point = point;
+        this.distance = distance;
+    }
+}
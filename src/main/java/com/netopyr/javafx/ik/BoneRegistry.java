@@ -0,0 +1,111 @@
+/*
+ * Copyright 2013 Michael Heinrichs, http://netopyr.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netopyr.javafx.ik;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The registry of all {@link Bone} objects of a {@link Skeleton}.
+ * <p>
+ * Every registered {@code Bone} gets an integer id, which stays the same as
+ * long as the {@code Bone} belongs to the {@code Skeleton}. Ids of removed
+ * {@code Bone} objects are reused, which keeps ids dense, so they can be used
+ * as indexes into arrays. Adding, removing and looking up a {@code Bone} by
+ * id or name takes constant time.
+ * <p>
+ * Several {@code Bone} objects can have the same name. They are kept in the
+ * order in which they got the name, a lookup by name returns the first one.
+ */
+final class BoneRegistry {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private Bone[] bones = new Bone[INITIAL_CAPACITY];
+    private int[] freeIds = new int[INITIAL_CAPACITY];
+    private int freeCount;
+    private int nextId;
+    private final Map<String, List<Bone>> names = new HashMap<>();
+
+    /**
+     * The upper bound of all ids that are currently in use.
+     */
+    int getCapacity() {return nextId;}
+
+    int add(Bone bone) {
+        final int id;
+        if (freeCount > 0) {
+            id = freeIds[--freeCount];
+        } else {
+            id = nextId++;
+            if (id == bones.length) {
+                bones = Arrays.copyOf(bones, 2 * id);
+            }
+        }
+        bones[id] = bone;
+        addName(bone, bone.getName());
+        return id;
+    }
+
+    void remove(Bone bone) {
+        final int id = bone.getId();
+        assert bones[id] == bone;
+        bones[id] = null;
+        if (freeCount == freeIds.length) {
+            freeIds = Arrays.copyOf(freeIds, 2 * freeCount);
+        }
+        freeIds[freeCount++] = id;
+        removeName(bone, bone.getName());
+    }
+
+    void rename(Bone bone, String oldName, String newName) {
+        removeName(bone, oldName);
+        addName(bone, newName);
+    }
+
+    Bone get(int id) {
+        return ((id >= 0) && (id < nextId))? bones[id] : null;
+    }
+
+    Bone get(String name) {
+        final List<Bone> owners = names.get(name);
+        return (owners == null)? null : owners.get(0);
+    }
+
+    private void addName(Bone bone, String name) {
+        if (name != null) {
+            List<Bone> owners = names.get(name);
+            if (owners == null) {
+                owners = new ArrayList<>(1);
+                names.put(name, owners);
+            }
+            owners.add(bone);
+        }
+    }
+
+    private void removeName(Bone bone, String name) {
+        if (name != null) {
+            final List<Bone> owners = names.get(name);
+            if ((owners != null) && owners.remove(bone) && owners.isEmpty()) {
+                names.remove(name);
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2013 Michael Heinrichs, http://netopyr.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netopyr.javafx.ik;
+
+import javafx.beans.binding.Bindings;
+import javafx.beans.binding.DoubleBinding;
+import javafx.beans.property.ListProperty;
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
+import javafx.collections.ObservableList;
+import javafx.scene.Group;
+import javafx.scene.Node;
+import javafx.scene.transform.Rotate;
+
+/**
+ * The scenegraph-representation of a {@link Bone}.
+ * <p>
+ * A {@code BoneView} is created only when a {@code Bone} gets content.
+ * Its {@code Group} contains the content of the {@code Bone} and is
+ * translated and rotated according to the {@code Bone}.
+ */
+final class BoneView {
+
+    private final Group group = new Group();
+    Node getGroup() {return group;}
+
+    /**
+     * The position of the {@code Group} in the children of the {@link Skeleton}.
+     */
+    private int index = -1;
+    int getIndex() {return index;}
+    void setIndex(int index) {this.index = index;}
+
+    BoneView(final Bone bone, ListProperty<Node> content) {
+        final Rotate rotate = new Rotate(bone.getRotate(), 0.0, 0.0);
+        rotate.angleProperty().bind(bone.rotateProperty());
+        group.getTransforms().setAll(rotate);
+
+        group.translateXProperty().bind(new DoubleBinding() {
+            { super.bind(bone.currentHeadProperty()); }
+            @Override
+            protected double computeValue() {
+                return bone.getCurrentHead().getX();
+            }
+        });
+        group.translateYProperty().bind(new DoubleBinding() {
+            { super.bind(bone.currentHeadProperty()); }
+            @Override
+            protected double computeValue() {
+                return bone.getCurrentHead().getY();
+            }
+        });
+        content.addListener(new ChangeListener<ObservableList<? extends Node>>() {
+            @Override
+            public void changed(ObservableValue<? extends ObservableList<? extends Node>> observableValue, ObservableList<? extends Node> oldList, ObservableList<? extends Node> newList) {
+                if (oldList != newList) {
+                    Bindings.unbindContent(group.getChildren(), oldList);
+                    Bindings.bindContent(group.getChildren(), newList);
+                }
+            }
+        });
+        Bindings.bindContent(group.getChildren(), content.get());
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2013 Michael Heinrichs, http://netopyr.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netopyr.javafx.ik;
+
+import javafx.geometry.Point2D;
+
+/**
+ * An {@link Obstacle} shaped like a capsule, a line segment with a radius.
+ */
+public class CapsuleObstacle extends Obstacle {
+
+    /**
+     * The x-coordinate of the start of the segment.
+     */
+    private final double startX;
+    public final double getStartX() {return startX;}
+
+    /**
+     * The y-coordinate of the start of the segment.
+     */
+    private final double startY;
+    public final double getStartY() {return startY;}
+
+    /**
+     * The x-coordinate of the end of the segment.
+     */
+    private final double endX;
+    public final double getEndX() {return endX;}
+
+    /**
+     * The y-coordinate of the end of the segment.
+     */
+    private final double endY;
+    public final double getEndY() {return endY;}
+
+    /**
+     * The radius of this {@code CapsuleObstacle}.
+     */
+    private final double radius;
+    public final double getRadius() {return radius;}
+
+    public CapsuleObstacle(double startX, double startY, double endX, double endY, double radius) {
+        super(Math.min(startX, endX) - radius, Math.min(startY, endY) - radius, Math.max(startX, endX) + radius, Math.max(startY, endY) + radius);
+        this.startX = startX;
+        this.startY = startY;
+        this.endX = endX;
+        this.endY = endY;
+        this.radius = radius;
+    }
+
+    @Override
+    public Point2D resolve(double x, double y, double radius) {
+        final double t = closestOnSegment(x, y, startX, startY, endX, endY);
+        return pushAway(x, y, startX + t * (endX - startX), startY + t * (endY - startY), this.radius + radius);
+    }
+}
@@ -0,0 +1,359 @@
+/*
+ * Copyright 2013 Michael Heinrichs, http://netopyr.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netopyr.javafx.ik;
+
+import javafx.geometry.Point2D;
+
+/**
+ * The class {@code ChainSolver} moves the tail of a {@link Bone}, the
+ * effector, towards a target while the head of another {@code Bone}, the
+ * anchor, stays in place.
+ * <p>
+ * In contrast to {@link Bone#moveTail(double, double)}, which drags the whole
+ * tree along, only the {@code Bone} objects between anchor and effector are
+ * rotated. The chain is solved iteratively using cyclic coordinate descent,
+ * respecting {@link Bone#getMinAngle()} and {@link Bone#getMaxAngle()}.
+ * <p>
+ * If exactly two {@code Bone} objects of the chain can rotate, i.e. all others
+ * have equal angle limits, the chain is solved analytically using the law of
+ * cosines instead. Of the two possible solutions, the one matching the
+ * {@link #bendDirection} is used, if it is within the angle limits. If no
+ * solution is within the limits, the iterative solver is used.
+ * <p>
+ * Targets beyond the length of the chain are detected in constant time, the
+ * length is summed up once in the constructor. If the angle limits allow it,
+ * the chain is stretched towards such a target directly. Likewise, a chain
+ * with one long {@code Bone} cannot fold closer to the anchor than twice the
+ * length of that {@code Bone} minus the length of the chain. A target within
+ * this inner radius is replaced with the closest point on the inner circle;
+ * if the effector is already there, solving is skipped.
+ * <p>
+ * Every solve starts from the current pose, which usually is the result of
+ * the previous solve, and all buffers are reused. If the effector is already
+ * within the {@link #tolerance} of a new target, solving is skipped entirely.
+ * The same applies if the target moved less than the tolerance since the
+ * last solve that was not skipped, and that solve was final, i.e. the
+ * target was out of reach or the residual stopped decreasing. A solve which
+ * only ran out of {@link #maxIterations} is continued.
+ */
+public class ChainSolver {
+
+    private static final int DEFAULT_MAX_ITERATIONS = 16;
+    private static final double DEFAULT_TOLERANCE = 0.5;
+    private static final double STALL_EPSILON = 1e-6;
+
+    private final BoneChain chain;
+    private final int first;
+    private final int second;
+    private final double totalLength;
+    private final double innerRadius;
+    private final boolean extendable;
+
+    private final double[] angles;
+    private final double[] rotates;
+    private final double[] jointX;
+    private final double[] jointY;
+
+    private double lastTargetX = Double.NaN;
+    private double lastTargetY = Double.NaN;
+    private Point2D lastEffector;
+    private boolean lastExhausted;
+
+    /**
+     * The maximum number of iterations of a single solve.
+     */
+    private int maxIterations = DEFAULT_MAX_ITERATIONS;
+    public final int getMaxIterations() {return maxIterations;}
+    public final void setMaxIterations(int maxIterations) {this.maxIterations = maxIterations;}
+
+    /**
+     * The maximum distance between effector and target of a converged solve.
+     */
+    private double tolerance = DEFAULT_TOLERANCE;
+    public final double getTolerance() {return tolerance;}
+    public final void setTolerance(double tolerance) {this.tolerance = tolerance;}
+
+    /**
+     * The preferred {@link BendDirection} of a chain with two rotatable
+     * {@link Bone} objects. If {@code null}, the solution closest to the
+     * current pose is preferred.
+     */
+    private BendDirection bendDirection;
+    public final BendDirection getBendDirection() {return bendDirection;}
+    public final void setBendDirection(BendDirection bendDirection) {this.bendDirection = bendDirection;}
+
+    /**
+     * The constructor of {@code ChainSolver}
+     *
+     * @param anchor The {@link Bone} whose head stays in place
+     * @param effector The {@code Bone} whose tail is moved, either the anchor itself or one of its descendants
+     */
+    public ChainSolver(Bone anchor, Bone effector) {
+        chain = new BoneChain(anchor, effector, "The anchor is not an ancestor of the effector");
+        final int size = chain.size();
+        final double[] lengths = chain.lengths;
+        final double[] minAngles = chain.minAngles;
+        final double[] maxAngles = chain.maxAngles;
+        final boolean[] limited = chain.limited;
+
+        int movable = 0;
+        int firstMovable = -1;
+        int secondMovable = -1;
+        for (int i = 0; i < size; i++) {
+            if (!limited[i] || (minAngles[i] < maxAngles[i])) {
+                movable++;
+                if (firstMovable < 0) {
+                    firstMovable = i;
+                } else {
+                    secondMovable = i;
+                }
+            }
+        }
+        first = (movable == 2)? firstMovable : -1;
+        second = (movable == 2)? secondMovable : -1;
+
+        // a chain can be stretched, if all bones but the first one allow an angle of 0
+        double sum = 0.0;
+        double longest = 0.0;
+        boolean straight = true;
+        for (int i = 0; i < size; i++) {
+            sum += lengths[i];
+            longest = Math.max(longest, lengths[i]);
+            if ((i > 0) && limited[i] && ((minAngles[i] > 0) || (maxAngles[i] < 0))) {
+                straight = false;
+            }
+        }
+        totalLength = sum;
+        innerRadius = Math.max(0.0, 2 * longest - sum);
+        extendable = straight;
+
+        angles = new double[size];
+        rotates = new double[size];
+        jointX = new double[size + 1];
+        jointY = new double[size + 1];
+    }
+
+    public final Bone getAnchor() {return chain.getFirst();}
+    public final Bone getEffector() {return chain.getLast();}
+
+    public SolveResult solve(Point2D target) {
+        return solve(target.getX(), target.getY());
+    }
+
+    /**
+     * Moves the tail of the effector towards a target.
+     *
+     * @param x The x-coordinate of the target
+     * @param y The y-coordinate of the target
+     * @return the {@link SolveResult}
+     */
+    public SolveResult solve(double x, double y) {
+        final Bone effector = getEffector();
+        final Point2D current = effector.getCurrentTail();
+        final double currentResidual = current.distance(x, y);
+        if (currentResidual <= tolerance) {
+            return remember(x, y, current, false, true, 0, currentResidual);
+        }
+        if (lastExhausted && current.equals(lastEffector) && (Math.hypot(x - lastTargetX, y - lastTargetY) < tolerance)) {
+            // the target of the last real solve is kept, so a slowly drifting target is solved again eventually
+            return new SolveResult(false, 0, currentResidual);
+        }
+
+        final Point2D head = getAnchor().getCurrentHead();
+        final double distance = head.distance(x, y);
+        final boolean outOfReach = distance >= totalLength;
+        final boolean tooClose = distance < innerRadius;
+        double goalX = x;
+        double goalY = y;
+        if (tooClose) {
+            // the closest reachable point is on the inner circle, in the direction of the target
+            final double dx = (distance > 0.0)? x - head.getX() : current.getX() - head.getX();
+            final double dy = (distance > 0.0)? y - head.getY() : current.getY() - head.getY();
+            final double scale = innerRadius / Math.hypot(dx, dy);
+            goalX = head.getX() + dx * scale;
+            goalY = head.getY() + dy * scale;
+            if (current.distance(goalX, goalY) <= tolerance) {
+                return remember(x, y, current, true, false, 0, currentResidual);
+            }
+        }
+
+        loadPose();
+        final int n = chain.size();
+        double residual = tooClose? current.distance(goalX, goalY) : currentResidual;
+        double improvement = Double.POSITIVE_INFINITY;
+        int iterations = 0;
+        // both closed-form solutions are exact, even if the target cannot be reached
+        final boolean solved = (outOfReach && extendable && extend(x, y)) || ((first >= 0) && solveTwoBones(goalX, goalY));
+        if (solved) {
+            iterations = 1;
+        }
+        while (!solved && (iterations < maxIterations) && (residual > tolerance)) {
+            iterations++;
+            for (int i = n - 1; i >= 0; i--) {
+                final double fromEffector = Math.atan2(jointY[n] - jointY[i], jointX[n] - jointX[i]);
+                final double toTarget = Math.atan2(goalY - jointY[i], goalX - jointX[i]);
+                final double angle = Angles.borderAngle(angles[i] + Angles.borderAngle(180.0 * (toTarget - fromEffector) / Math.PI));
+                angles[i] = chain.limited[i]? Math.max(chain.minAngles[i], Math.min(angle, chain.maxAngles[i])) : angle;
+                forward(i);
+            }
+            final double next = Math.hypot(goalX - jointX[n], goalY - jointY[n]);
+            improvement = residual - next;
+            residual = next;
+            if (improvement < STALL_EPSILON) {
+                break;
+            }
+        }
+
+        chain.store(head, jointX, jointY, rotates, angles);
+        residual = Math.hypot(x - jointX[n], y - jointY[n]);
+        // another solve towards the same target can only improve the result, if the last one ran out of iterations
+        final boolean exhausted = solved || outOfReach || tooClose || (improvement < STALL_EPSILON);
+        return remember(x, y, effector.getCurrentTail(), exhausted, residual <= tolerance, iterations, residual);
+    }
+
+    private boolean extend(double x, double y) {
+        final double direction = 180.0 * Math.atan2(y - jointY[0], x - jointX[0]) / Math.PI;
+        final double angle = Angles.borderAngle(direction - chain.getParentRotate());
+        if (!isWithinLimits(0, angle)) {
+            return false;
+        }
+        angles[0] = angle;
+        for (int i = 1; i < chain.size(); i++) {
+            angles[i] = 0.0;
+        }
+        forward(0);
+        return true;
+    }
+
+    private boolean solveTwoBones(double x, double y) {
+        final int n = chain.size();
+
+        // the bones between both rotatable bones form a rigid link in the frame of the first one
+        double link1X = 0.0;
+        double link1Y = 0.0;
+        double between = 0.0;
+        for (int i = first; i < second; i++) {
+            if (i > first) {
+                between = Angles.borderAngle(between + angles[i]);
+            }
+            final double radians = Math.PI * between / 180.0;
+            link1X += Math.cos(radians) * chain.lengths[i];
+            link1Y += Math.sin(radians) * chain.lengths[i];
+        }
+        // the bones from the second rotatable bone to the effector form a rigid link in the frame of the second one
+        double link2X = 0.0;
+        double link2Y = 0.0;
+        double offset = 0.0;
+        for (int i = second; i < n; i++) {
+            if (i > second) {
+                offset = Angles.borderAngle(offset + angles[i]);
+            }
+            final double radians = Math.PI * offset / 180.0;
+            link2X += Math.cos(radians) * chain.lengths[i];
+            link2Y += Math.sin(radians) * chain.lengths[i];
+        }
+
+        final double length1 = Math.hypot(link1X, link1Y);
+        final double length2 = Math.hypot(link2X, link2Y);
+        final double dx = x - jointX[first];
+        final double dy = y - jointY[first];
+        final double distance = Math.max(Math.abs(length1 - length2), Math.min(Math.hypot(dx, dy), length1 + length2));
+        if ((length1 == 0.0) || (length2 == 0.0) || (distance == 0.0)) {
+            return false;
+        }
+
+        final double toTarget = Math.atan2(dy, dx);
+        final double beta = Math.acos(clamp((length1 * length1 + distance * distance - length2 * length2) / (2 * length1 * distance)));
+        final double gamma = Math.acos(clamp((length1 * length1 + length2 * length2 - distance * distance) / (2 * length1 * length2)));
+        final double bend = Math.PI - gamma;
+        final double offset1 = Math.atan2(link1Y, link1X);
+        final double offset2 = Math.atan2(link2Y, link2X);
+        final double reference = (first == 0)? chain.getParentRotate() : rotates[first - 1];
+
+        double bestFirst = 0.0;
+        double bestSecond = 0.0;
+        double bestScore = Double.POSITIVE_INFINITY;
+        for (int sign = 1; sign >= -1; sign -= 2) {
+            final double direction1 = toTarget - sign * beta;
+            final double direction2 = direction1 + sign * bend;
+            final double rotate1 = Angles.borderAngle(180.0 * (direction1 - offset1) / Math.PI);
+            final double rotate2 = Angles.borderAngle(180.0 * (direction2 - offset2) / Math.PI);
+            final double angle1 = Angles.borderAngle(rotate1 - reference);
+            final double angle2 = Angles.borderAngle(Angles.borderAngle(rotate2 - rotate1) - between);
+            if (isWithinLimits(first, angle1) && isWithinLimits(second, angle2)) {
+                final double score;
+                if (bendDirection == null) {
+                    score = Math.abs(Angles.borderAngle(angle1 - angles[first])) + Math.abs(Angles.borderAngle(angle2 - angles[second]));
+                } else {
+                    score = ((sign > 0) == (bendDirection == BendDirection.POSITIVE))? 0.0 : 1.0;
+                }
+                if (score < bestScore) {
+                    bestFirst = angle1;
+                    bestSecond = angle2;
+                    bestScore = score;
+                }
+            }
+        }
+        if (bestScore == Double.POSITIVE_INFINITY) {
+            return false;
+        }
+        angles[first] = bestFirst;
+        angles[second] = bestSecond;
+        forward(first);
+        return true;
+    }
+
+    private boolean isWithinLimits(int index, double angle) {
+        return !chain.limited[index] || ((angle >= chain.minAngles[index]) && (angle <= chain.maxAngles[index]));
+    }
+
+    private SolveResult remember(double x, double y, Point2D effector, boolean exhausted, boolean converged, int iterations, double residual) {
+        lastTargetX = x;
+        lastTargetY = y;
+        lastEffector = effector;
+        lastExhausted = exhausted && !converged;
+        return new SolveResult(converged, iterations, residual);
+    }
+
+    private void loadPose() {
+        final Point2D head = chain.getFirst().getCurrentHead();
+        jointX[0] = head.getX();
+        jointY[0] = head.getY();
+        double previous = chain.getParentRotate();
+        for (int i = 0; i < chain.size(); i++) {
+            final double rotate = chain.bones[i].getRotate();
+            angles[i] = Angles.borderAngle(rotate - previous);
+            previous = rotate;
+        }
+        forward(0);
+    }
+
+    private void forward(int from) {
+        double rotate = (from == 0)? chain.getParentRotate() : rotates[from - 1];
+        for (int i = from; i < chain.size(); i++) {
+            rotate = Angles.borderAngle(rotate + angles[i]);
+            rotates[i] = rotate;
+            final double radians = Math.PI * rotate / 180.0;
+            jointX[i + 1] = jointX[i] + Math.cos(radians) * chain.lengths[i];
+            jointY[i + 1] = jointY[i] + Math.sin(radians) * chain.lengths[i];
+        }
+    }
+
+    private static double clamp(double value) {
+        return Math.max(-1.0, Math.min(value, 1.0));
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2013 Michael Heinrichs, http://netopyr.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netopyr.javafx.ik;
+
+import javafx.geometry.Point2D;
+
+/**
+ * A circular {@link Obstacle}.
+ */
+public class CircleObstacle extends Obstacle {
+
+    /**
+     * The x-coordinate of the center of this {@code CircleObstacle}.
+     */
+    private final double centerX;
+    public final double getCenterX() {return centerX;}
+
+    /**
+     * The y-coordinate of the center of this {@code CircleObstacle}.
+     */
+    private final double centerY;
+    public final double getCenterY() {return centerY;}
+
+    /**
+     * The radius of this {@code CircleObstacle}.
+     */
+    private final double radius;
+    public final double getRadius() {return radius;}
+
+    public CircleObstacle(double centerX, double centerY, double radius) {
+        super(centerX - radius, centerY - radius, centerX + radius, centerY + radius);
+        this.centerX = centerX;
+        this.centerY = centerY;
+        this.radius = radius;
+    }
+
+    @Override
+    public Point2D resolve(double x, double y, double radius) {
+        return pushAway(x, y, centerX, centerY, this.radius + radius);
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2013 Michael Heinrichs, http://netopyr.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netopyr.javafx.ik;
+
+import javafx.beans.InvalidationListener;
+import javafx.beans.Observable;
+import javafx.geometry.Point2D;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pushes the joints of {@link Bone} objects out of the {@link Obstacle}
+ * objects of a {@link Skeleton} and, if enabled, out of other {@code Bone}
+ * objects.
+ * <p>
+ * {@code Obstacle} objects are stored in a spatial hash, which is rebuilt
+ * whenever {@link Skeleton#getObstacles()} changes. Self-collisions use the
+ * {@link SpatialIndex} of the {@code Skeleton}. Each solve may push joints at
+ * most {@link Skeleton#getCollisionIterations()} times, additional collisions
+ * are ignored until the next solve.
+ */
+final class CollisionSolver {
+
+    private static final double CELL_SIZE = 64.0;
+    private static final int MAX_PASSES = 4;
+    private static final List<Obstacle> NO_OBSTACLES = Collections.emptyList();
+
+    private final Skeleton skeleton;
+    private Map<Long, List<Obstacle>> cells;
+    private int remaining;
+
+    private final List<Bone> candidates = new ArrayList<>();
+
+    CollisionSolver(Skeleton skeleton) {
+        this.skeleton = skeleton;
+        this.remaining = skeleton.getCollisionIterations();
+        skeleton.getObstacles().addListener(new InvalidationListener() {
+            @Override
+            public void invalidated(Observable observable) {
+                cells = null;
+            }
+        });
+    }
+
+    void reset() {
+        remaining = skeleton.getCollisionIterations();
+    }
+
+    /**
+     * Moves the free end of a {@link Bone} out of all colliding shapes while
+     * keeping its distance to the fixed end.
+     *
+     * @param bone The {@code Bone}
+     * @param end The end of the {@code Bone} that may be pushed
+     * @param fixed The end of the {@code Bone} that must not move
+     * @param free The end of the {@code Bone} that may be pushed
+     * @param length The length of the {@code Bone}
+     * @return the new position of the free end or {@code free}, if it did not change
+     */
+    Point2D resolve(Bone bone, BoneEnd end, Point2D fixed, Point2D free, double length) {
+        final double radius = skeleton.getCollisionRadius();
+        final boolean selfCollision = skeleton.isSelfCollision();
+        double x = free.getX();
+        double y = free.getY();
+        boolean moved = false;
+        for (int pass = 0; (pass < MAX_PASSES) && (remaining > 0); pass++) {
+            boolean pushed = false;
+            for (final Obstacle obstacle : getObstacles(x, y, radius)) {
+                final Point2D p = obstacle.resolve(x, y, radius);
+                if (p != null) {
+                    x = p.getX();
+                    y = p.getY();
+                    pushed = true;
+                }
+            }
+            if (selfCollision && (radius > 0.0)) {
+                candidates.clear();
+                skeleton.getSpatialIndex().collect(x, y, 2 * radius, candidates);
+                for (final Bone other : candidates) {
+                    if (!isConnected(bone, other, end)) {
+                        final Point2D head = other.getCurrentHead();
+                        final Point2D tail = other.getCurrentTail();
+                        final double t = Obstacle.closestOnSegment(x, y, head.getX(), head.getY(), tail.getX(), tail.getY());
+                        final Point2D p = Obstacle.pushAway(x, y,
+                                head.getX() + t * (tail.getX() - head.getX()), head.getY() + t * (tail.getY() - head.getY()), 2 * radius);
+                        if (p != null) {
+                            x = p.getX();
+                            y = p.getY();
+                            pushed = true;
+                        }
+                    }
+                }
+            }
+            if (!pushed) {
+                break;
+            }
+            remaining--;
+            moved = true;
+
+            // restore the length of the bone, which may push the joint into another shape again
+            final double dx = x - fixed.getX();
+            final double dy = y - fixed.getY();
+            final double distance = Math.hypot(dx, dy);
+            if (distance > 0.0) {
+                x = fixed.getX() + dx * length / distance;
+                y = fixed.getY() + dy * length / distance;
+            }
+        }
+        return moved? new Point2D(x, y) : free;
+    }
+
+    /**
+     * Checks whether another {@link Bone} touches the joints of a
+     * {@code Bone}. Connected {@code Bone} objects always touch and must not
+     * push each other away. If the head is resolved, the grandparent is
+     * connected, too, because the parent rotates around its head.
+     */
+    private static boolean isConnected(Bone bone, Bone other, BoneEnd end) {
+        final Bone parent = bone.getParent();
+        final Bone otherParent = other.getParent();
+        if ((other == bone) || (other == parent) || (otherParent == bone)) {
+            return true;
+        }
+        return (parent != null) && ((otherParent == parent) || ((end == BoneEnd.HEAD) && (other == parent.getParent())));
+    }
+
+    private List<Obstacle> getObstacles(double x, double y, double radius) {
+        if (cells == null) {
+            buildCells();
+        }
+        final int fromX = cell(x - radius);
+        final int toX   = cell(x + radius);
+        final int fromY = cell(y - radius);
+        final int toY   = cell(y + radius);
+        if ((fromX == toX) && (fromY == toY)) {
+            final List<Obstacle> cell = cells.get(key(fromX, fromY));
+            return (cell == null)? NO_OBSTACLES : cell;
+        }
+        final List<Obstacle> result = new ArrayList<>();
+        for (int cx = fromX; cx <= toX; cx++) {
+            for (int cy = fromY; cy <= toY; cy++) {
+                final List<Obstacle> cell = cells.get(key(cx, cy));
+                if (cell != null) {
+                    result.addAll(cell);
+                }
+            }
+        }
+        return result;
+    }
+
+    private void buildCells() {
+        cells = new HashMap<>();
+        for (final Obstacle obstacle : skeleton.getObstacles()) {
+            for (int cx = cell(obstacle.getMinX()); cx <= cell(obstacle.getMaxX()); cx++) {
+                for (int cy = cell(obstacle.getMinY()); cy <= cell(obstacle.getMaxY()); cy++) {
+                    final Long key = key(cx, cy);
+                    List<Obstacle> cell = cells.get(key);
+                    if (cell == null) {
+                        cell = new ArrayList<>();
+                        cells.put(key, cell);
+                    }
+                    cell.add(obstacle);
+                }
+            }
+        }
+    }
+
+    private static int cell(double value) {
+        return (int) Math.floor(value / CELL_SIZE);
+    }
+
+    private static long key(int cx, int cy) {
+        return ((long) cx << 32) | (cy & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2013 Michael Heinrichs, http://netopyr.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netopyr.javafx.ik;
+
+/**
+ * The level of detail in which a {@link Skeleton} is updated.
+ *
+ * @see LodPolicy
+ */
+public enum DetailLevel {
+
+    /**
+     * Every move is solved immediately.
+     */
+    FULL,
+
+    /**
+     * Moves are collected and solved only every few pulses.
+     */
+    REDUCED,
+
+    /**
+     * Moves are collected, but not solved until the {@link Skeleton} gets a
+     * higher level of detail again.
+     */
+    HIDDEN
+}
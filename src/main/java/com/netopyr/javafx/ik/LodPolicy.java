@@ -0,0 +1,132 @@
+/*
+ * Copyright 2013 Michael Heinrichs, http://netopyr.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netopyr.javafx.ik;
+
+import javafx.geometry.BoundingBox;
+import javafx.geometry.Bounds;
+import javafx.scene.Node;
+import javafx.scene.Scene;
+
+/**
+ * The class {@code LodPolicy} determines the {@link DetailLevel} of a
+ * {@link Skeleton}.
+ * <p>
+ * A {@code Skeleton} that is invisible, not part of a {@code Scene} or
+ * completely outside of the {@code Scene} is {@link DetailLevel#HIDDEN}. The
+ * same applies to a {@code Skeleton} whose size in scene coordinates is less
+ * than {@link #hiddenSize}. A {@code Skeleton} smaller than {@link #fullSize}
+ * is updated with {@link DetailLevel#REDUCED} detail, all others with
+ * {@link DetailLevel#FULL} detail.
+ * <p>
+ * The size is calculated from the bounds of the {@code Skeleton}, i.e. from
+ * the content of its {@link Bone} objects, and the positions of all targets
+ * that were deferred. A {@code Skeleton} which is moved back into the
+ * {@code Scene} therefore becomes visible again. If the {@code Bone} objects
+ * have no content, the size is unknown and the {@code Skeleton} is updated
+ * with {@link DetailLevel#FULL} detail.
+ */
+public class LodPolicy {
+
+    private static final double DEFAULT_FULL_SIZE = 48.0;
+    private static final double DEFAULT_HIDDEN_SIZE = 4.0;
+    private static final int DEFAULT_REDUCED_INTERVAL = 4;
+
+    /**
+     * The minimum size of a {@link Skeleton} with {@link DetailLevel#FULL} detail.
+     */
+    private final double fullSize;
+    public final double getFullSize() {return fullSize;}
+
+    /**
+     * The minimum size of a {@link Skeleton} that is not {@link DetailLevel#HIDDEN}.
+     */
+    private final double hiddenSize;
+    public final double getHiddenSize() {return hiddenSize;}
+
+    /**
+     * The number of pulses between two solves of a {@link Skeleton} with
+     * {@link DetailLevel#REDUCED} detail.
+     */
+    private final int reducedInterval;
+    public final int getReducedInterval() {return reducedInterval;}
+
+    public LodPolicy(double fullSize, double hiddenSize, int reducedInterval) {
+        if (reducedInterval < 1) {
+            throw new IllegalArgumentException("reducedInterval must be positive");
+        }
+        this.fullSize = fullSize;
+        this.hiddenSize = hiddenSize;
+        this.reducedInterval = reducedInterval;
+    }
+
+    public LodPolicy() {
+        this(DEFAULT_FULL_SIZE, DEFAULT_HIDDEN_SIZE, DEFAULT_REDUCED_INTERVAL);
+    }
+
+    /**
+     * Determines the {@link DetailLevel} of a {@link Skeleton}. This method is
+     * called once per pulse.
+     *
+     * @param skeleton The {@code Skeleton}
+     * @return the {@code DetailLevel}
+     */
+    public DetailLevel getDetailLevel(Skeleton skeleton) {
+        final Scene scene = skeleton.getScene();
+        if ((scene == null) || !isTreeVisible(skeleton)) {
+            return DetailLevel.HIDDEN;
+        }
+        final Bounds local = getBounds(skeleton);
+        if (local == null) {
+            return DetailLevel.FULL;
+        }
+        final Bounds bounds = skeleton.localToScene(local);
+        if ((bounds.getMaxX() < 0) || (bounds.getMaxY() < 0)
+                || (bounds.getMinX() > scene.getWidth()) || (bounds.getMinY() > scene.getHeight())) {
+            return DetailLevel.HIDDEN;
+        }
+        final double size = Math.max(bounds.getWidth(), bounds.getHeight());
+        if (size < hiddenSize) {
+            return DetailLevel.HIDDEN;
+        }
+        return (size < fullSize)? DetailLevel.REDUCED : DetailLevel.FULL;
+    }
+
+    private static Bounds getBounds(Skeleton skeleton) {
+        final Bounds content = skeleton.getBoundsInLocal();
+        if (content.isEmpty()) {
+            return null;
+        }
+        final Bounds targets = skeleton.getDeferredBounds();
+        if (targets == null) {
+            return content;
+        }
+        final double minX = Math.min(content.getMinX(), targets.getMinX());
+        final double minY = Math.min(content.getMinY(), targets.getMinY());
+        return new BoundingBox(minX, minY,
+                Math.max(content.getMaxX(), targets.getMaxX()) - minX,
+                Math.max(content.getMaxY(), targets.getMaxY()) - minY);
+    }
+
+    private static boolean isTreeVisible(Node node) {
+        for (Node iterator = node; iterator != null; iterator = iterator.getParent()) {
+            if (!iterator.isVisible()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2013 Michael Heinrichs, http://netopyr.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netopyr.javafx.ik;
+
+import javafx.geometry.Point2D;
+
+/**
+ * The class {@code Obstacle} is the base class of all shapes {@link Bone}
+ * objects can collide with.
+ * <p>
+ * {@code Obstacle} objects are added to {@link Skeleton#getObstacles()}. All
+ * coordinates are based on the local coordinate-system of the
+ * {@link Skeleton}. An {@code Obstacle} is immutable, to move it, it has to
+ * be replaced.
+ */
+public abstract class Obstacle {
+
+    /**
+     * The smallest x-coordinate of this {@code Obstacle}.
+     */
+    private final double minX;
+    public final double getMinX() {return minX;}
+
+    /**
+     * The smallest y-coordinate of this {@code Obstacle}.
+     */
+    private final double minY;
+    public final double getMinY() {return minY;}
+
+    /**
+     * The largest x-coordinate of this {@code Obstacle}.
+     */
+    private final double maxX;
+    public final double getMaxX() {return maxX;}
+
+    /**
+     * The largest y-coordinate of this {@code Obstacle}.
+     */
+    private final double maxY;
+    public final double getMaxY() {return maxY;}
+
+    protected Obstacle(double minX, double minY, double maxX, double maxY) {
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+    }
+
+    /**
+     * Pushes a circle out of this {@code Obstacle}.
+     *
+     * @param x The x-coordinate of the center of the circle
+     * @param y The y-coordinate of the center of the circle
+     * @param radius The radius of the circle
+     * @return the closest center at which the circle does not overlap this {@code Obstacle} or
+     * {@code null}, if the circle does not overlap this {@code Obstacle}
+     */
+    public abstract Point2D resolve(double x, double y, double radius);
+
+    static Point2D pushAway(double x, double y, double fromX, double fromY, double distance) {
+        final double dx = x - fromX;
+        final double dy = y - fromY;
+        final double length = Math.hypot(dx, dy);
+        if (length >= distance) {
+            return null;
+        }
+        if (length == 0.0) {
+            return new Point2D(fromX + distance, fromY);
+        }
+        return new Point2D(fromX + dx * distance / length, fromY + dy * distance / length);
+    }
+
+    static double closestOnSegment(double x, double y, double x1, double y1, double x2, double y2) {
+        final double dx = x2 - x1;
+        final double dy = y2 - y1;
+        final double lengthSquared = dx * dx + dy * dy;
+        return (lengthSquared == 0.0)? 0.0 : Math.max(0.0, Math.min(((x - x1) * dx + (y - y1) * dy) / lengthSquared, 1.0));
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2013 Michael Heinrichs, http://netopyr.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netopyr.javafx.ik;
+
+import javafx.geometry.Point2D;
+
+import java.util.Arrays;
+
+/**
+ * A polygonal {@link Obstacle}.
+ * <p>
+ * The polygon is closed automatically and may be concave, but must not
+ * intersect itself.
+ */
+public class PolygonObstacle extends Obstacle {
+
+    private final double[] points;
+
+    /**
+     * Returns the coordinates of the corners of this {@code PolygonObstacle}.
+     *
+     * @return a copy of the coordinates as x0, y0, x1, y1, ...
+     */
+    public final double[] getPoints() {return Arrays.copyOf(points, points.length);}
+
+    /**
+     * The constructor of {@code PolygonObstacle}
+     *
+     * @param points The coordinates of the corners as x0, y0, x1, y1, ...
+     */
+    public PolygonObstacle(double... points) {
+        super(min(points, 0), min(points, 1), max(points, 0), max(points, 1));
+        if ((points.length < 6) || (points.length % 2 != 0)) {
+            throw new IllegalArgumentException("A polygon needs at least three points");
+        }
+        this.points = Arrays.copyOf(points, points.length);
+    }
+
+    @Override
+    public Point2D resolve(double x, double y, double radius) {
+        boolean inside = false;
+        double closestX = 0.0;
+        double closestY = 0.0;
+        double closestDistance = Double.POSITIVE_INFINITY;
+        for (int i = 0, j = points.length - 2; i < points.length; j = i, i += 2) {
+            final double x1 = points[j];
+            final double y1 = points[j + 1];
+            final double x2 = points[i];
+            final double y2 = points[i + 1];
+            if (((y2 > y) != (y1 > y)) && (x < (x1 - x2) * (y - y2) / (y1 - y2) + x2)) {
+                inside = !inside;
+            }
+            final double t = closestOnSegment(x, y, x1, y1, x2, y2);
+            final double px = x1 + t * (x2 - x1);
+            final double py = y1 + t * (y2 - y1);
+            final double distance = Math.hypot(x - px, y - py);
+            if (distance < closestDistance) {
+                closestX = px;
+                closestY = py;
+                closestDistance = distance;
+            }
+        }
+        if (!inside || (closestDistance == 0.0)) {
+            return pushAway(x, y, closestX, closestY, radius);
+        }
+        final double scale = (closestDistance + radius) / closestDistance;
+        return new Point2D(x + (closestX - x) * scale, y + (closestY - y) * scale);
+    }
+
+    private static double min(double[] points, int offset) {
+        double result = Double.POSITIVE_INFINITY;
+        for (int i = offset; i < points.length; i += 2) {
+            result = Math.min(result, points[i]);
+        }
+        return result;
+    }
+
+    private static double max(double[] points, int offset) {
+        double result = Double.NEGATIVE_INFINITY;
+        for (int i = offset; i < points.length; i += 2) {
+            result = Math.max(result, points[i]);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2013 Michael Heinrichs, http://netopyr.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netopyr.javafx.ik;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A copy of the pose of all {@link Bone} objects of a {@link Skeleton},
+ * created with {@link Skeleton#snapshotPose()}.
+ * <p>
+ * The pose is stored in primitive arrays, which are reused if the snapshot
+ * is passed to {@link Skeleton#snapshotPose(PoseSnapshot)} again.
+ */
+public final class PoseSnapshot {
+
+    private Bone[] bones = new Bone[0];
+    private double[] headX = new double[0];
+    private double[] headY = new double[0];
+    private double[] tailX = new double[0];
+    private double[] tailY = new double[0];
+    private double[] rotates = new double[0];
+    private double[] angles = new double[0];
+    private int size;
+
+    PoseSnapshot() {
+    }
+
+    /**
+     * Returns the number of {@link Bone} objects in this snapshot.
+     *
+     * @return the number of {@code Bone} objects
+     */
+    public int size() {
+        return size;
+    }
+
+    void capture(List<Bone> source) {
+        final int count = source.size();
+        if (count > bones.length) {
+            bones = new Bone[count];
+            headX = new double[count];
+            headY = new double[count];
+            tailX = new double[count];
+            tailY = new double[count];
+            rotates = new double[count];
+            angles = new double[count];
+        } else {
+            Arrays.fill(bones, count, size, null);
+        }
+        for (int i = 0; i < count; i++) {
+            final Bone bone = source.get(i);
+            bones[i] = bone;
+            headX[i] = bone.getCurrentHead().getX();
+            headY[i] = bone.getCurrentHead().getY();
+            tailX[i] = bone.getCurrentTail().getX();
+            tailY[i] = bone.getCurrentTail().getY();
+            rotates[i] = bone.getRotate();
+            angles[i] = bone.getAngle();
+        }
+        size = count;
+    }
+
+    void restore(Skeleton skeleton) {
+        for (int i = 0; i < size; i++) {
+            final Bone bone = bones[i];
+            if (bone.getSkeleton() == skeleton) {
+                bone.setPose(headX[i], headY[i], tailX[i], tailY[i], rotates[i], angles[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2013 Michael Heinrichs, http://netopyr.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netopyr.javafx.ik;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The class {@code RigDefinition} is the immutable description of a tree of
+ * bones: its topology, the lengths, the angle limits and the rest angles.
+ * <p>
+ * A single {@code RigDefinition} can be shared by any number of
+ * {@link RigPose} instances, which only store the current pose. Bones are
+ * identified by their index. The parent of a bone always has a lower index
+ * than the bone itself.
+ */
+public final class RigDefinition {
+
+    private final int[] parents;
+    private final double[] lengths;
+    private final double[] restAngles;
+    private final double[] minAngles;
+    private final double[] maxAngles;
+    private final String[] names;
+
+    private final int[] childStart;
+    private final int[] childIndexes;
+    private final Map<String, Integer> nameIndex = new HashMap<>();
+
+    /**
+     * The constructor of {@code RigDefinition}
+     *
+     * @param parents The index of the parent of each bone or -1 for a root
+     * @param lengths The length of each bone
+     * @param restAngles The angle of each bone in the rest pose
+     * @param minAngles The lower bound of the angle of each bone
+     * @param maxAngles The upper bound of the angle of each bone
+     * @param names The name of each bone, may be {@code null}
+     */
+    public RigDefinition(int[] parents, double[] lengths, double[] restAngles, double[] minAngles, double[] maxAngles, String[] names) {
+        final int count = parents.length;
+        if ((lengths.length != count) || (restAngles.length != count) || (minAngles.length != count)
+                || (maxAngles.length != count) || ((names != null) && (names.length != count))) {
+            throw new IllegalArgumentException("All arrays must have the same length");
+        }
+        for (int i = 0; i < count; i++) {
+            if ((parents[i] < -1) || (parents[i] >= i)) {
+                throw new IllegalArgumentException("The parent of a bone must have a lower index than the bone");
+            }
+        }
+        this.parents = Arrays.copyOf(parents, count);
+        this.lengths = Arrays.copyOf(lengths, count);
+        this.restAngles = Arrays.copyOf(restAngles, count);
+        this.minAngles = Arrays.copyOf(minAngles, count);
+        this.maxAngles = Arrays.copyOf(maxAngles, count);
+        this.names = (names == null)? new String[count] : Arrays.copyOf(names, count);
+
+        childStart = new int[count + 1];
+        for (final int parent : parents) {
+            if (parent >= 0) {
+                childStart[parent + 1]++;
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            childStart[i + 1] += childStart[i];
+        }
+        childIndexes = new int[childStart[count]];
+        final int[] fill = Arrays.copyOf(childStart, count);
+        for (int i = 0; i < count; i++) {
+            if (parents[i] >= 0) {
+                childIndexes[fill[parents[i]]++] = i;
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            if ((this.names[i] != null) && !nameIndex.containsKey(this.names[i])) {
+                nameIndex.put(this.names[i], i);
+            }
+        }
+    }
+
+    /**
+     * Creates a {@code RigDefinition} from a tree of {@link Bone} objects.
+     * <p>
+     * The tree is traversed breadth-first, starting with index 0 for
+     * {@code root}. The current angles of the {@code Bone} objects become the
+     * rest angles.
+     *
+     * @param root The root of the tree
+     * @return the new {@code RigDefinition}
+     */
+    public static RigDefinition of(Bone root) {
+        final List<Bone> bones = new ArrayList<>();
+        final Map<Bone, Integer> indexes = new HashMap<>();
+        bones.add(root);
+        indexes.put(root, 0);
+        for (int i = 0; i < bones.size(); i++) {
+            for (final Bone child : bones.get(i).getChildren()) {
+                indexes.put(child, bones.size());
+                bones.add(child);
+            }
+        }
+
+        final int count = bones.size();
+        final int[] parents = new int[count];
+        final double[] lengths = new double[count];
+        final double[] restAngles = new double[count];
+        final double[] minAngles = new double[count];
+        final double[] maxAngles = new double[count];
+        final String[] names = new String[count];
+        for (int i = 0; i < count; i++) {
+            final Bone bone = bones.get(i);
+            parents[i] = (i == 0)? -1 : indexes.get(bone.getParent());
+            lengths[i] = bone.getLength();
+            minAngles[i] = bone.getMinAngle();
+            maxAngles[i] = bone.getMaxAngle();
+            names[i] = bone.getName();
+            final Bone parent = bone.getParent();
+            // the angle of a root is its absolute rotation
+            restAngles[i] = (i == 0)? bone.getRotate() : Angles.borderAngle(bone.getRotate() - parent.getRotate());
+        }
+        return new RigDefinition(parents, lengths, restAngles, minAngles, maxAngles, names);
+    }
+
+    /**
+     * Creates a {@link Skeleton} with one {@link Bone} per bone of this
+     * {@code RigDefinition}, in rest pose.
+     * <p>
+     * The lengths, limits and names are copied into the {@code Bone} objects,
+     * the {@code Skeleton} does not keep a reference to this
+     * {@code RigDefinition}.
+     *
+     * @return the new {@code Skeleton}
+     */
+    public Skeleton createSkeleton() {
+        final SkeletonBuilder builder = SkeletonBuilder.create();
+        final Bone[] bones = new Bone[getBoneCount()];
+        for (int i = 0; i < bones.length; i++) {
+            bones[i] = new Bone(lengths[i], restAngles[i], minAngles[i], maxAngles[i]);
+            bones[i].setName(names[i]);
+            if (parents[i] < 0) {
+                builder.root(bones[i]);
+            } else {
+                builder.child(bones[parents[i]], bones[i]);
+            }
+        }
+        return builder.build();
+    }
+
+    public int getBoneCount() {return parents.length;}
+    public int getParent(int bone) {return parents[bone];}
+    public double getLength(int bone) {return lengths[bone];}
+    public double getRestAngle(int bone) {return restAngles[bone];}
+    public double getMinAngle(int bone) {return minAngles[bone];}
+    public double getMaxAngle(int bone) {return maxAngles[bone];}
+    public String getName(int bone) {return names[bone];}
+    public int getChildCount(int bone) {return childStart[bone + 1] - childStart[bone];}
+    public int getChild(int bone, int i) {return childIndexes[childStart[bone] + i];}
+
+    /**
+     * Returns the index of the bone with the given name.
+     *
+     * @param name The name of the bone
+     * @return the index or -1, if no bone with this name exists
+     */
+    public int indexOf(String name) {
+        final Integer index = nameIndex.get(name);
+        return (index == null)? -1 : index;
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2013 Michael Heinrichs, http://netopyr.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netopyr.javafx.ik;
+
+/**
+ * The class {@code RigPose} stores the pose of one instance of a shared
+ * {@link RigDefinition}.
+ * <p>
+ * The pose is kept in primitive arrays, which are the only per-instance
+ * state. {@link #moveHead(int, double, double)} and
+ * {@link #moveTail(int, double, double)} behave exactly like their
+ * counterparts in {@link Bone}, but no properties or listeners are involved.
+ * A {@code RigPose} can be rendered with a {@link RigView}.
+ * <p>
+ * {@code RigPose} is a lightweight alternative to a {@link Skeleton}, not a
+ * replacement. Collisions, the {@link LodPolicy} and posted targets are only
+ * available for a {@code Skeleton}, which can be created with
+ * {@link RigDefinition#createSkeleton()} if they are needed.
+ */
+public final class RigPose {
+
+    private final RigDefinition definition;
+    public RigDefinition getDefinition() {return definition;}
+
+    private final double[] headX;
+    private final double[] headY;
+    private final double[] tailX;
+    private final double[] tailY;
+    private final double[] rotates;
+    private final double[] angles;
+
+    private RigView view;
+    void setView(RigView view) {
+        if (this.view != null) {
+            throw new IllegalStateException("The RigPose is already rendered by another RigView");
+        }
+        this.view = view;
+    }
+
+    public RigPose(RigDefinition definition) {
+        this.definition = definition;
+        final int count = definition.getBoneCount();
+        headX = new double[count];
+        headY = new double[count];
+        tailX = new double[count];
+        tailY = new double[count];
+        rotates = new double[count];
+        angles = new double[count];
+        reset();
+    }
+
+    public double getHeadX(int bone) {return headX[bone];}
+    public double getHeadY(int bone) {return headY[bone];}
+    public double getTailX(int bone) {return tailX[bone];}
+    public double getTailY(int bone) {return tailY[bone];}
+    public double getRotate(int bone) {return rotates[bone];}
+    public double getAngle(int bone) {return angles[bone];}
+
+    /**
+     * Resets all bones to the rest pose with all roots at the origin.
+     */
+    public void reset() {
+        for (int i = 0, n = definition.getBoneCount(); i < n; i++) {
+            final int parent = definition.getParent(i);
+            angles[i] = definition.getRestAngle(i);
+            if (parent < 0) {
+                headX[i] = 0.0;
+                headY[i] = 0.0;
+                rotates[i] = angles[i];
+            } else {
+                headX[i] = tailX[parent];
+                headY[i] = tailY[parent];
+                rotates[i] = Angles.borderAngle(rotates[parent] + angles[i]);
+            }
+            updateTail(i);
+        }
+        poseChanged();
+    }
+
+    /**
+     * Copies the pose of another {@code RigPose} with the same {@link RigDefinition}.
+     *
+     * @param other The other {@code RigPose}
+     */
+    public void set(RigPose other) {
+        if (other.definition != definition) {
+            throw new IllegalArgumentException("The RigPose has a different RigDefinition");
+        }
+        final int count = definition.getBoneCount();
+        System.arraycopy(other.headX, 0, headX, 0, count);
+        System.arraycopy(other.headY, 0, headY, 0, count);
+        System.arraycopy(other.tailX, 0, tailX, 0, count);
+        System.arraycopy(other.tailY, 0, tailY, 0, count);
+        System.arraycopy(other.rotates, 0, rotates, 0, count);
+        System.arraycopy(other.angles, 0, angles, 0, count);
+        poseChanged();
+    }
+
+    void setBone(int bone, double headX, double headY, double tailX, double tailY, double rotate, double angle) {
+        this.headX[bone] = headX;
+        this.headY[bone] = headY;
+        this.tailX[bone] = tailX;
+        this.tailY[bone] = tailY;
+        rotates[bone] = rotate;
+        angles[bone] = angle;
+    }
+
+    public void moveHead(int bone, double x, double y) {
+        moveHead(bone, x, y, -1);
+        poseChanged();
+    }
+
+    public void moveTail(int bone, double x, double y) {
+        moveTail(bone, x, y, -1);
+        poseChanged();
+    }
+
+    private void moveHead(int bone, double x, double y, int initiator) {
+        final int parent = definition.getParent(bone);
+        assert initiator < 0 || initiator == parent;
+
+        if ((headX[bone] != x) || (headY[bone] != y)) {
+            headX[bone] = x;
+            headY[bone] = y;
+            final double alpha = Math.atan2(tailY[bone] - y, tailX[bone] - x);
+            final double rotateValue = 180 * alpha / Math.PI;
+            final double minAngle = definition.getMinAngle(bone);
+            final double maxAngle = definition.getMaxAngle(bone);
+            if ((initiator >= 0) && ((minAngle > -180) || (maxAngle < 180))) {
+                final double initiatorRotate = rotates[initiator];
+                final double angle = Math.max(minAngle, Math.min(Angles.borderAngle(rotateValue - initiatorRotate), maxAngle));
+                angles[bone] = angle;
+                rotates[bone] = Angles.borderAngle(initiatorRotate + angle);
+                updateTail(bone);
+            } else {
+                rotates[bone] = rotateValue;
+                final double length = definition.getLength(bone);
+                tailX[bone] = x + Math.cos(alpha) * length;
+                tailY[bone] = y + Math.sin(alpha) * length;
+                if ((initiator < 0) && (parent >= 0)) {
+                    angles[bone] = Angles.borderAngle(rotateValue - rotates[parent]);
+                    moveTail(parent, x, y, bone);
+                }
+            }
+            updateChildren(bone, -1);
+        }
+    }
+
+    private void moveTail(int bone, double x, double y, int initiator) {
+        final int parent = definition.getParent(bone);
+        assert initiator < 0 || initiator != parent;
+
+        if ((tailX[bone] != x) || (tailY[bone] != y)) {
+            tailX[bone] = x;
+            tailY[bone] = y;
+            double alpha = Math.atan2(headY[bone] - y, headX[bone] - x);
+            double rotateValue = Angles.borderAngle(180.0 + 180 * alpha / Math.PI);
+            if (initiator >= 0) {
+                final double minAngle = definition.getMinAngle(initiator);
+                final double maxAngle = definition.getMaxAngle(initiator);
+                if ((minAngle > -180) || (maxAngle < 180)) {
+                    final double initiatorRotate = rotates[initiator];
+                    final double childAngle = Math.max(minAngle, Math.min(Angles.borderAngle(initiatorRotate - rotateValue), maxAngle));
+                    rotateValue = Angles.borderAngle(initiatorRotate - childAngle);
+                    alpha = (rotateValue - 180) * Math.PI / 180.0;
+                }
+            }
+            rotates[bone] = rotateValue;
+            final double length = definition.getLength(bone);
+            headX[bone] = x + Math.cos(alpha) * length;
+            headY[bone] = y + Math.sin(alpha) * length;
+            if (parent >= 0) {
+                angles[bone] = Angles.borderAngle(rotateValue - rotates[parent]);
+                moveTail(parent, headX[bone], headY[bone], bone);
+            }
+            updateChildren(bone, initiator);
+        }
+    }
+
+    private void updateChildren(int bone, int initiator) {
+        for (int i = 0, n = definition.getChildCount(bone); i < n; i++) {
+            final int child = definition.getChild(bone, i);
+            if (child != initiator) {
+                moveHead(child, tailX[bone], tailY[bone], bone);
+            }
+        }
+    }
+
+    private void updateTail(int bone) {
+        final double radians = rotates[bone] * Math.PI / 180.0;
+        final double length = definition.getLength(bone);
+        tailX[bone] = headX[bone] + Math.cos(radians) * length;
+        tailY[bone] = headY[bone] + Math.sin(radians) * length;
+    }
+
+    private void poseChanged() {
+        if (view != null) {
+            view.poseChanged();
+        }
+    }
+}
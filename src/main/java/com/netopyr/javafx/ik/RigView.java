@@ -0,0 +1,100 @@
+/*
+ * Copyright 2013 Michael Heinrichs, http://netopyr.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netopyr.javafx.ik;
+
+import javafx.collections.ObservableList;
+import javafx.scene.Group;
+import javafx.scene.Node;
+import javafx.scene.Parent;
+import javafx.scene.transform.Rotate;
+
+/**
+ * The class {@code RigView} renders a {@link RigPose}.
+ * <p>
+ * Content can be added per bone with {@link #getContent(int)}. Only bones
+ * with content get a {@code Group} in the scenegraph. Changes of the
+ * {@code RigPose} are applied to the scenegraph once per pulse, during
+ * layout.
+ */
+public class RigView extends Parent {
+
+    private final RigPose pose;
+    public final RigPose getPose() {return pose;}
+
+    private final Group[] groups;
+    private final Rotate[] rotates;
+    private boolean dirty;
+
+    /**
+     * The constructor of {@code RigView}
+     *
+     * @param pose The {@link RigPose} to render, which must not be rendered by another {@code RigView}
+     * @throws IllegalStateException if the {@code RigPose} is rendered by another {@code RigView}
+     */
+    public RigView(RigPose pose) {
+        this.pose = pose;
+        final int count = pose.getDefinition().getBoneCount();
+        groups = new Group[count];
+        rotates = new Rotate[count];
+        pose.setView(this);
+    }
+
+    /**
+     * Returns the {@code Node} objects which are translated and rotated
+     * according to a bone.
+     *
+     * @param bone The index of the bone
+     * @return the content of the bone
+     */
+    public final ObservableList<Node> getContent(int bone) {
+        if (groups[bone] == null) {
+            final Group group = new Group();
+            rotates[bone] = new Rotate();
+            group.getTransforms().setAll(rotates[bone]);
+            groups[bone] = group;
+            update(bone);
+            getChildren().add(group);
+        }
+        return groups[bone].getChildren();
+    }
+
+    void poseChanged() {
+        if (!dirty) {
+            dirty = true;
+            requestLayout();
+        }
+    }
+
+    @Override
+    protected void layoutChildren() {
+        if (dirty) {
+            dirty = false;
+            for (int i = 0; i < groups.length; i++) {
+                if (groups[i] != null) {
+                    update(i);
+                }
+            }
+        }
+        super.layoutChildren();
+    }
+
+    private void update(int bone) {
+        groups[bone].setTranslateX(pose.getHeadX(bone));
+        groups[bone].setTranslateY(pose.getHeadY(bone));
+        rotates[bone].setAngle(pose.getRotate(bone));
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2013 Michael Heinrichs, http://netopyr.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netopyr.javafx.ik;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A detached copy of the pose of a {@link Skeleton}, created with
+ * {@link Skeleton#createScratchPose()}.
+ * <p>
+ * Moves of a {@code ScratchPose} are solved exactly like moves of the
+ * {@link Bone} objects, but no properties change and no listeners are
+ * notified. Once a candidate pose is accepted, {@link #commit()} writes it
+ * back to the {@code Bone} objects. To discard a candidate, {@link #load()}
+ * the current pose of the {@code Skeleton} again.
+ * <p>
+ * Obstacles and the level of detail of the {@code Skeleton} are ignored. If
+ * the tree of the {@code Skeleton} changes, a new {@code ScratchPose} has to
+ * be created.
+ */
+public final class ScratchPose {
+
+    private final Skeleton skeleton;
+    private final Bone[] bones;
+    private final int[] indexes;
+    private final RigPose pose;
+
+    ScratchPose(Skeleton skeleton) {
+        this.skeleton = skeleton;
+
+        // parents have to be stored before their children
+        final List<Bone> order = new ArrayList<>();
+        for (final Bone bone : skeleton.getBones()) {
+            if (bone.getParent() == null) {
+                order.add(bone);
+            }
+        }
+        for (int i = 0; i < order.size(); i++) {
+            order.addAll(order.get(i).getChildren());
+        }
+
+        final int count = order.size();
+        bones = order.toArray(new Bone[count]);
+        int maxId = -1;
+        for (final Bone bone : bones) {
+            maxId = Math.max(maxId, bone.getId());
+        }
+        indexes = new int[maxId + 1];
+        for (int i = 0; i < count; i++) {
+            indexes[bones[i].getId()] = i;
+        }
+
+        final int[] parents = new int[count];
+        final double[] lengths = new double[count];
+        final double[] restAngles = new double[count];
+        final double[] minAngles = new double[count];
+        final double[] maxAngles = new double[count];
+        for (int i = 0; i < count; i++) {
+            final Bone bone = bones[i];
+            parents[i] = (bone.getParent() == null)? -1 : indexes[bone.getParent().getId()];
+            lengths[i] = bone.getLength();
+            restAngles[i] = bone.getAngle();
+            minAngles[i] = bone.getMinAngle();
+            maxAngles[i] = bone.getMaxAngle();
+        }
+        pose = new RigPose(new RigDefinition(parents, lengths, restAngles, minAngles, maxAngles, null));
+        load();
+    }
+
+    /**
+     * Returns the index of a {@link Bone} in the underlying {@link RigPose}.
+     *
+     * @param bone The {@code Bone}
+     * @return the index of the {@code Bone}
+     * @throws IllegalArgumentException if the {@code Bone} is not part of this {@code ScratchPose}
+     */
+    public int indexOf(Bone bone) {
+        final int id = bone.getId();
+        if ((id < 0) || (id >= indexes.length) || (bones[indexes[id]] != bone)) {
+            throw new IllegalArgumentException("Bone is not part of this ScratchPose");
+        }
+        return indexes[id];
+    }
+
+    /**
+     * Returns the {@link RigPose} that stores the pose of this
+     * {@code ScratchPose}. Bones are identified by {@link #indexOf(Bone)}.
+     *
+     * @return the {@code RigPose}
+     */
+    public RigPose getPose() {
+        return pose;
+    }
+
+    public void moveHead(Bone bone, double x, double y) {
+        pose.moveHead(indexOf(bone), x, y);
+    }
+
+    public void moveTail(Bone bone, double x, double y) {
+        pose.moveTail(indexOf(bone), x, y);
+    }
+
+    /**
+     * Copies the current pose of the {@link Skeleton} into this
+     * {@code ScratchPose}.
+     */
+    public void load() {
+        checkTopology();
+        for (int i = 0; i < bones.length; i++) {
+            final Bone bone = bones[i];
+            pose.setBone(i, bone.getCurrentHead().getX(), bone.getCurrentHead().getY(),
+                    bone.getCurrentTail().getX(), bone.getCurrentTail().getY(), bone.getRotate(), bone.getAngle());
+        }
+    }
+
+    /**
+     * Writes the pose of this {@code ScratchPose} back to the {@link Bone}
+     * objects of the {@link Skeleton}. Only values which differ are set.
+     */
+    public void commit() {
+        checkTopology();
+        for (int i = 0; i < bones.length; i++) {
+            bones[i].setPose(pose.getHeadX(i), pose.getHeadY(i), pose.getTailX(i), pose.getTailY(i),
+                    pose.getRotate(i), pose.getAngle(i));
+        }
+    }
+
+    private void checkTopology() {
+        if (skeleton.getBones().size() != bones.length) {
+            throw new IllegalStateException("The Skeleton has changed");
+        }
+        final RigDefinition definition = pose.getDefinition();
+        for (int i = 0; i < bones.length; i++) {
+            final Bone bone = bones[i];
+            final int parent = definition.getParent(i);
+            if ((bone.getSkeleton() != skeleton) || (bone.getParent() != ((parent < 0)? null : bones[parent]))) {
+                throw new IllegalStateException("The Skeleton has changed");
+            }
+        }
+    }
+}
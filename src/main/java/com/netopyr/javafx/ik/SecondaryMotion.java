@@ -0,0 +1,254 @@
+/*
+ * Copyright 2013 Michael Heinrichs, http://netopyr.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netopyr.javafx.ik;
+
+import javafx.geometry.Point2D;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * The class {@code SecondaryMotion} adds inertia to a chain of {@link Bone}
+ * objects, e.g. a tail or an antenna, using Verlet integration.
+ * <p>
+ * The head of the first {@code Bone} is pinned to its current position, all
+ * tails are simulated. Every sub-step the joints move according to their
+ * velocity and {@link #gravityX}/{@link #gravityY}, then the lengths and the
+ * angle limits of the {@code Bone} objects are enforced outwards from the
+ * pinned head. Because every joint only depends on its predecessor, a single
+ * pass satisfies all constraints.
+ * <p>
+ * The simulation combines with {@link Bone#moveHead(double, double)} and
+ * {@link Bone#moveTail(double, double)}: if a joint was moved since the last
+ * step, the simulation continues from the new position, keeping the previous
+ * position. The move therefore becomes part of the velocity of the joint.
+ * <p>
+ * Time is consumed in fixed sub-steps of {@link #timeStep} seconds. All state
+ * is kept in primitive arrays, which allows to simulate many chains in
+ * parallel with {@link #stepAll(List, double, ExecutorService)}.
+ */
+public class SecondaryMotion {
+
+    private static final double DEFAULT_TIME_STEP = 1.0 / 120.0;
+    private static final double DEFAULT_DAMPING = 0.98;
+    private static final int DEFAULT_MAX_SUB_STEPS = 8;
+
+    private final BoneChain chain;
+
+    private final double[] x;
+    private final double[] y;
+    private final double[] previousX;
+    private final double[] previousY;
+    private final double[] appliedX;
+    private final double[] appliedY;
+    private final double[] angles;
+    private final double[] rotates;
+
+    private double parentRotate;
+    private double accumulator;
+    private boolean initialized;
+    private boolean changed;
+
+    private final Callable<Void> simulation = new Callable<Void>() {
+        @Override
+        public Void call() {
+            simulate();
+            return null;
+        }
+    };
+    private double pendingTime;
+
+    /**
+     * The duration of a single sub-step in seconds.
+     */
+    private double timeStep = DEFAULT_TIME_STEP;
+    public final double getTimeStep() {return timeStep;}
+    public final void setTimeStep(double timeStep) {this.timeStep = timeStep;}
+
+    /**
+     * The fraction of the velocity of a joint, that is kept per sub-step.
+     */
+    private double damping = DEFAULT_DAMPING;
+    public final double getDamping() {return damping;}
+    public final void setDamping(double damping) {this.damping = damping;}
+
+    /**
+     * The horizontal acceleration in units of the {@link Skeleton} per second squared.
+     */
+    private double gravityX;
+    public final double getGravityX() {return gravityX;}
+    public final void setGravityX(double gravityX) {this.gravityX = gravityX;}
+
+    /**
+     * The vertical acceleration in units of the {@link Skeleton} per second squared.
+     */
+    private double gravityY;
+    public final double getGravityY() {return gravityY;}
+    public final void setGravityY(double gravityY) {this.gravityY = gravityY;}
+
+    /**
+     * The maximum number of sub-steps of a single step. If more time
+     * elapsed, the remaining time is dropped.
+     */
+    private int maxSubSteps = DEFAULT_MAX_SUB_STEPS;
+    public final int getMaxSubSteps() {return maxSubSteps;}
+    public final void setMaxSubSteps(int maxSubSteps) {this.maxSubSteps = maxSubSteps;}
+
+    /**
+     * The constructor of {@code SecondaryMotion}
+     *
+     * @param first The first {@link Bone} of the chain, whose head is pinned
+     * @param last The last {@code Bone} of the chain, either {@code first} itself or one of its descendants
+     */
+    public SecondaryMotion(Bone first, Bone last) {
+        chain = new BoneChain(first, last, "The first bone is not an ancestor of the last bone");
+        final int size = chain.size();
+        x = new double[size + 1];
+        y = new double[size + 1];
+        previousX = new double[size + 1];
+        previousY = new double[size + 1];
+        appliedX = new double[size + 1];
+        appliedY = new double[size + 1];
+        angles = new double[size];
+        rotates = new double[size];
+    }
+
+    public final Bone getFirst() {return chain.getFirst();}
+    public final Bone getLast() {return chain.getLast();}
+
+    /**
+     * Advances the simulation and updates the {@link Bone} objects. Has to be
+     * called on the JavaFX Application Thread.
+     *
+     * @param elapsed The elapsed time in seconds
+     */
+    public void step(double elapsed) {
+        capture(elapsed);
+        simulate();
+        apply();
+    }
+
+    /**
+     * Advances the simulation of several {@code SecondaryMotion} objects.
+     * <p>
+     * The current poses are read and the results are written on the calling
+     * thread, which has to be the JavaFX Application Thread. The simulations
+     * run in parallel on {@code executor}. The chains must not overlap.
+     *
+     * @param motions The {@code SecondaryMotion} objects
+     * @param elapsed The elapsed time in seconds
+     * @param executor The {@code ExecutorService} that runs the simulations
+     */
+    public static void stepAll(List<? extends SecondaryMotion> motions, double elapsed, ExecutorService executor) {
+        final List<Callable<Void>> simulations = new ArrayList<>(motions.size());
+        for (final SecondaryMotion motion : motions) {
+            motion.capture(elapsed);
+            simulations.add(motion.simulation);
+        }
+        try {
+            for (final Future<Void> future : executor.invokeAll(simulations)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Simulation of SecondaryMotion failed", e.getCause());
+        }
+        for (final SecondaryMotion motion : motions) {
+            motion.apply();
+        }
+    }
+
+    private void capture(double elapsed) {
+        final int n = chain.size();
+        parentRotate = chain.getParentRotate();
+        final Point2D head = chain.getFirst().getCurrentHead();
+        x[0] = head.getX();
+        y[0] = head.getY();
+        for (int i = 0; i < n; i++) {
+            final Point2D tail = chain.bones[i].getCurrentTail();
+            final double tailX = tail.getX();
+            final double tailY = tail.getY();
+            if (!initialized) {
+                x[i + 1] = previousX[i + 1] = tailX;
+                y[i + 1] = previousY[i + 1] = tailY;
+            } else if ((tailX != appliedX[i + 1]) || (tailY != appliedY[i + 1])) {
+                // moved by IK, the move becomes part of the velocity
+                x[i + 1] = tailX;
+                y[i + 1] = tailY;
+            }
+        }
+        initialized = true;
+        pendingTime = elapsed;
+    }
+
+    private void simulate() {
+        accumulator += pendingTime;
+        pendingTime = 0.0;
+        int steps = (int) (accumulator / timeStep);
+        if (steps > maxSubSteps) {
+            steps = maxSubSteps;
+            accumulator = 0.0;
+        } else {
+            accumulator -= steps * timeStep;
+        }
+        changed = steps > 0;
+
+        final int n = chain.size();
+        final double accelerationX = gravityX * timeStep * timeStep;
+        final double accelerationY = gravityY * timeStep * timeStep;
+        for (int step = 0; step < steps; step++) {
+            for (int i = 1; i <= n; i++) {
+                final double velocityX = (x[i] - previousX[i]) * damping;
+                final double velocityY = (y[i] - previousY[i]) * damping;
+                previousX[i] = x[i];
+                previousY[i] = y[i];
+                x[i] += velocityX + accelerationX;
+                y[i] += velocityY + accelerationY;
+            }
+            double rotate = parentRotate;
+            for (int i = 0; i < n; i++) {
+                final double direction = 180.0 * Math.atan2(y[i + 1] - y[i], x[i + 1] - x[i]) / Math.PI;
+                final double angle = Angles.borderAngle(direction - rotate);
+                angles[i] = chain.limited[i]? Math.max(chain.minAngles[i], Math.min(angle, chain.maxAngles[i])) : angle;
+                rotate = Angles.borderAngle(rotate + angles[i]);
+                rotates[i] = rotate;
+                final double radians = Math.PI * rotate / 180.0;
+                x[i + 1] = x[i] + Math.cos(radians) * chain.lengths[i];
+                y[i + 1] = y[i] + Math.sin(radians) * chain.lengths[i];
+            }
+        }
+    }
+
+    private void apply() {
+        if (!changed) {
+            return;
+        }
+        final int n = chain.size();
+        chain.store(chain.getFirst().getCurrentHead(), x, y, rotates, angles);
+        for (int i = 0; i < n; i++) {
+            final Point2D tail = chain.bones[i].getCurrentTail();
+            appliedX[i + 1] = tail.getX();
+            appliedY[i + 1] = tail.getY();
+        }
+    }
+}
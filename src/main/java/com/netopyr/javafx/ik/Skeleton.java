@@ -16,38 +16,628 @@
 
 package com.netopyr.javafx.ik;
 
+import javafx.application.Platform;
+import javafx.beans.InvalidationListener;
+import javafx.beans.Observable;
+import javafx.beans.property.BooleanProperty;
+import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.IntegerProperty;
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.ObjectPropertyBase;
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.beans.property.SimpleBooleanProperty;
+import javafx.beans.property.SimpleDoubleProperty;
+import javafx.beans.property.SimpleIntegerProperty;
 import javafx.collections.FXCollections;
-import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
+import javafx.geometry.BoundingBox;
+import javafx.geometry.Bounds;
+import javafx.geometry.Point2D;
 import javafx.scene.Node;
 import javafx.scene.Parent;
 
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class Skeleton extends Parent {
 
+    private static final int DEFAULT_COLLISION_ITERATIONS = 64;
+
+    private final BoneRegistry registry = new BoneRegistry();
+
+    public Skeleton() {
+        final InvalidationListener pulseListener = new InvalidationListener() {
+            @Override
+            public void invalidated(Observable observable) {
+                updatePulseRegistration();
+            }
+        };
+        sceneProperty().addListener(pulseListener);
+        lodPolicy.addListener(pulseListener);
+    }
+
     private final ObservableList<Bone> bones = FXCollections.observableArrayList();
-    ObservableList<Bone> getBonesWritable() {return bones;}
 
+    /**
+     * The {@link BoneView} objects of all {@link Bone} objects with content,
+     * in the same order as their {@code Group} objects in {@link #getChildren()}.
+     */
+    private final List<BoneView> views = new ArrayList<>();
+
+    /**
+     * All {@link Bone} objects of this {@code Skeleton}.
+     * <p>
+     * If a {@code Bone} is removed, the last {@code Bone} takes its place,
+     * therefore the order of the list is not stable.
+     */
     private final ObservableList<Bone> bonesView = FXCollections.unmodifiableObservableList(bones);
     public ObservableList<Bone> getBones() {return bonesView;}
 
-    public Skeleton() {
-        bones.addListener(new ListChangeListener<Bone>() {
-            @Override
-            public void onChanged(ListChangeListener.Change<? extends Bone> change) {
-                final List<Node> children = getChildren();
-                while (change.next()) {
-                    children.subList(change.getFrom(), change.getFrom() + change.getRemovedSize()).clear();
-                    final List<Node> nodes = new ArrayList<>(change.getAddedSize());
-                    for (final Bone bone : change.getAddedSubList()) {
-                        nodes.add(bone.getGroup());
+    /**
+     * Returns the {@link Bone} with the given id.
+     *
+     * @param id The id of the {@code Bone}
+     * @return the {@code Bone} or {@code null}, if no {@code Bone} with this id exists
+     * @see Bone#getId()
+     */
+    public Bone getBone(int id) {
+        return registry.get(id);
+    }
+
+    /**
+     * Returns the {@link Bone} with the given name.
+     * <p>
+     * If several {@code Bone} objects have the same name, the one that got
+     * the name first is returned.
+     *
+     * @param name The name of the {@code Bone}
+     * @return the {@code Bone} or {@code null}, if no {@code Bone} with this name exists
+     * @see Bone#nameProperty()
+     */
+    public Bone getBone(String name) {
+        return registry.get(name);
+    }
+
+    /**
+     * Finds the joint closest to a point.
+     * <p>
+     * Only joints of {@link Bone} objects which are
+     * {@link Bone#isPickable() pickable} are considered.
+     *
+     * @param x The x-coordinate of the point in local coordinates of this {@code Skeleton}
+     * @param y The y-coordinate of the point in local coordinates of this {@code Skeleton}
+     * @param maxDistance The maximum distance between the point and the joint
+     * @return the closest joint or {@code null}, if no joint is closer than {@code maxDistance}
+     */
+    public BonePick pickJoint(double x, double y, double maxDistance) {
+        return getSpatialIndex().nearestJoint(x, y, maxDistance, null);
+    }
+
+    /**
+     * Finds the head or tail closest to a point.
+     * <p>
+     * Only joints of {@link Bone} objects which are
+     * {@link Bone#isPickable() pickable} are considered.
+     *
+     * @param x The x-coordinate of the point in local coordinates of this {@code Skeleton}
+     * @param y The y-coordinate of the point in local coordinates of this {@code Skeleton}
+     * @param maxDistance The maximum distance between the point and the joint
+     * @param end The end to consider or {@code null}, if heads and tails are considered
+     * @return the closest joint or {@code null}, if no joint is closer than {@code maxDistance}
+     */
+    public BonePick pickJoint(double x, double y, double maxDistance, BoneEnd end) {
+        return getSpatialIndex().nearestJoint(x, y, maxDistance, end);
+    }
+
+    /**
+     * Finds the {@link Bone} whose segment is closest to a point.
+     * <p>
+     * Only {@code Bone} objects which are {@link Bone#isPickable() pickable}
+     * are considered.
+     *
+     * @param x The x-coordinate of the point in local coordinates of this {@code Skeleton}
+     * @param y The y-coordinate of the point in local coordinates of this {@code Skeleton}
+     * @param maxDistance The maximum distance between the point and the segment
+     * @return the closest segment or {@code null}, if no segment is closer than {@code maxDistance}
+     */
+    public BonePick pickBone(double x, double y, double maxDistance) {
+        return getSpatialIndex().nearestSegment(x, y, maxDistance);
+    }
+
+    /**
+     * The {@link Obstacle} objects the {@link Bone} objects of this
+     * {@code Skeleton} collide with.
+     * <p>
+     * While a {@code Bone} is moved, its joints are pushed out of all
+     * {@code Obstacle} objects. Only the joints are tested, the segment between
+     * two joints may still cross an {@code Obstacle} that is smaller than the
+     * {@code Bone}. Obstacles take precedence over the angle limits of a
+     * {@code Bone}.
+     */
+    private final ObservableList<Obstacle> obstacles = FXCollections.observableArrayList();
+    public final ObservableList<Obstacle> getObstacles() {return obstacles;}
+
+    /**
+     * The radius around the joints of all {@link Bone} objects, that is kept
+     * free of obstacles and, if {@link #selfCollision} is enabled, of other
+     * {@code Bone} objects.
+     */
+    private final DoubleProperty collisionRadius = new SimpleDoubleProperty(this, "collisionRadius", 0.0);
+    public final double getCollisionRadius() {return collisionRadius.get();}
+    public final void setCollisionRadius(double value) {collisionRadius.set(value);}
+    public final DoubleProperty collisionRadiusProperty() {return collisionRadius;}
+
+    /**
+     * Defines whether the joints of a {@link Bone} are pushed away from the
+     * segments of other {@code Bone} objects. Only works with a positive
+     * {@link #collisionRadius}.
+     */
+    private final BooleanProperty selfCollision = new SimpleBooleanProperty(this, "selfCollision", false);
+    public final boolean isSelfCollision() {return selfCollision.get();}
+    public final void setSelfCollision(boolean value) {selfCollision.set(value);}
+    public final BooleanProperty selfCollisionProperty() {return selfCollision;}
+
+    /**
+     * The maximum number of times joints are pushed out of colliding shapes
+     * while a single move is propagated. Targets that are solved together,
+     * i.e. posted or deferred targets, share one budget. Once the budget is
+     * used up, further collisions are ignored until the next move.
+     */
+    private final IntegerProperty collisionIterations = new SimpleIntegerProperty(this, "collisionIterations", DEFAULT_COLLISION_ITERATIONS);
+    public final int getCollisionIterations() {return collisionIterations.get();}
+    public final void setCollisionIterations(int value) {collisionIterations.set(value);}
+    public final IntegerProperty collisionIterationsProperty() {return collisionIterations;}
+
+    private CollisionSolver collisionSolver;
+
+    /**
+     * The {@link LodPolicy} of this {@code Skeleton}.
+     * <p>
+     * If a {@code LodPolicy} is set, the {@link #detailLevel} is evaluated
+     * once per pulse while this {@code Skeleton} is part of a {@code Scene}.
+     * Without a {@code LodPolicy} or outside of a {@code Scene}, the level is
+     * {@link DetailLevel#FULL} and all moves are solved immediately.
+     */
+    private final ObjectProperty<LodPolicy> lodPolicy = new ObjectPropertyBase<LodPolicy>() {
+        @Override
+        protected void invalidated() {
+            if (get() == null) {
+                setDetailLevel(DetailLevel.FULL);
+            }
+        }
+
+        @Override
+        public Object getBean() {
+            return Skeleton.this;
+        }
+
+        @Override
+        public String getName() {
+            return "lodPolicy";
+        }
+    };
+    public final LodPolicy getLodPolicy() {return lodPolicy.get();}
+    public final void setLodPolicy(LodPolicy value) {lodPolicy.set(value);}
+    public final ObjectProperty<LodPolicy> lodPolicyProperty() {return lodPolicy;}
+
+    /**
+     * The current {@link DetailLevel} of this {@code Skeleton}.
+     * <p>
+     * Unless the level is {@link DetailLevel#FULL}, calls of
+     * {@link Bone#moveHead(double, double)} and {@link Bone#moveTail(double, double)}
+     * are not solved immediately. Only the latest target of each end of a
+     * {@link Bone} is kept and solved once the level of detail allows it.
+     */
+    private final ReadOnlyObjectWrapper<DetailLevel> detailLevel = new ReadOnlyObjectWrapper<>(this, "detailLevel", DetailLevel.FULL);
+    public final DetailLevel getDetailLevel() {return detailLevel.get();}
+    public final ReadOnlyObjectProperty<DetailLevel> detailLevelProperty() {return detailLevel.getReadOnlyProperty();}
+
+    private void setDetailLevel(DetailLevel value) {
+        detailLevel.set(value);
+        if (value == DetailLevel.FULL) {
+            flushDeferred();
+        }
+    }
+
+    private final Map<Target, Target> deferred = new LinkedHashMap<>();
+    private int pulseCount;
+
+    boolean defer(Bone bone, BoneEnd end, double x, double y) {
+        if (getDetailLevel() == DetailLevel.FULL) {
+            return false;
+        }
+        final Target target = new Target(bone, end, x, y);
+        deferred.remove(target);
+        deferred.put(target, target);
+        return true;
+    }
+
+    /**
+     * Returns the bounds of all deferred targets in local coordinates or
+     * {@code null}, if there are no deferred targets.
+     */
+    Bounds getDeferredBounds() {
+        if (deferred.isEmpty()) {
+            return null;
+        }
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (final Target target : deferred.keySet()) {
+            minX = Math.min(minX, target.x);
+            minY = Math.min(minY, target.y);
+            maxX = Math.max(maxX, target.x);
+            maxY = Math.max(maxY, target.y);
+        }
+        return new BoundingBox(minX, minY, maxX - minX, maxY - minY);
+    }
+
+    private final ConcurrentLinkedQueue<Target> posted = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private final Map<Target, Target> drained = new LinkedHashMap<>();
+    private boolean drainRequested;
+
+    /**
+     * Posts a target for one end of a {@link Bone}.
+     * <p>
+     * This method can be called from any thread. The target is not solved
+     * immediately, instead all posted targets are solved together during the
+     * next pulse on the JavaFX Application Thread, sharing a single budget of
+     * {@link #collisionIterations}. If several targets are posted for the same
+     * end of a {@code Bone} in between, only the latest one is solved.
+     *
+     * @param bone The {@code Bone}, which has to be part of this {@code Skeleton}
+     * @param end The end of the {@code Bone} to move
+     * @param x The x-coordinate of the target
+     * @param y The y-coordinate of the target
+     */
+    public void postTarget(Bone bone, BoneEnd end, double x, double y) {
+        if ((bone == null) || (end == null)) {
+            throw new NullPointerException("Bone and end must not be null");
+        }
+        posted.add(new Target(bone, end, x, y));
+        if (drainScheduled.compareAndSet(false, true)) {
+            Platform.runLater(new Runnable() {
+                @Override
+                public void run() {
+                    drainRequested = true;
+                    updatePulseRegistration();
+                }
+            });
+        }
+    }
+
+    /**
+     * Solves all targets that were posted with
+     * {@link #postTarget(Bone, BoneEnd, double, double)} immediately. Has to
+     * be called on the JavaFX Application Thread.
+     */
+    public void flushTargets() {
+        drainScheduled.set(false);
+        Target target;
+        while ((target = posted.poll()) != null) {
+            drained.remove(target);
+            drained.put(target, target);
+        }
+        if (!drained.isEmpty()) {
+            final Target[] targets = drained.keySet().toArray(new Target[drained.size()]);
+            drained.clear();
+            beginBatch();
+            try {
+                for (final Target next : targets) {
+                    if ((next.bone.getSkeleton() == this) && !defer(next.bone, next.end, next.x, next.y)) {
+                        next.apply();
+                    }
+                }
+            } finally {
+                batch = false;
+            }
+        }
+    }
+
+    private void updatePulseRegistration() {
+        if (drainRequested || ((getScene() != null) && (getLodPolicy() != null))) {
+            SkeletonPulse.register(this);
+        } else {
+            SkeletonPulse.unregister(this);
+            // without pulses the level cannot change anymore, deferred moves would never be solved
+            setDetailLevel(DetailLevel.FULL);
+        }
+    }
+
+    void pulse() {
+        if (drainRequested) {
+            drainRequested = false;
+            flushTargets();
+            updatePulseRegistration();
+        }
+        final LodPolicy policy = getLodPolicy();
+        if (policy != null) {
+            final DetailLevel level = policy.getDetailLevel(this);
+            setDetailLevel(level);
+            if ((level == DetailLevel.REDUCED) && (++pulseCount % policy.getReducedInterval() == 0)) {
+                flushDeferred();
+            }
+        }
+    }
+
+    private void flushDeferred() {
+        if (!deferred.isEmpty()) {
+            final Target[] targets = deferred.keySet().toArray(new Target[deferred.size()]);
+            deferred.clear();
+            beginBatch();
+            try {
+                for (final Target target : targets) {
+                    if (target.bone.getSkeleton() == this) {
+                        target.apply();
                     }
-                    children.addAll(change.getFrom(), nodes);
                 }
+            } finally {
+                batch = false;
             }
-        });
+        }
+    }
+
+    /**
+     * Creates a {@link PoseSnapshot} of the current pose of all {@link Bone}
+     * objects.
+     *
+     * @return the new {@code PoseSnapshot}
+     */
+    public PoseSnapshot snapshotPose() {
+        return snapshotPose(new PoseSnapshot());
+    }
+
+    /**
+     * Stores the current pose of all {@link Bone} objects in an existing
+     * {@link PoseSnapshot}, reusing its buffers.
+     *
+     * @param snapshot The {@code PoseSnapshot} to overwrite
+     * @return {@code snapshot}
+     */
+    public PoseSnapshot snapshotPose(PoseSnapshot snapshot) {
+        snapshot.capture(bones);
+        return snapshot;
+    }
+
+    /**
+     * Restores a pose that was stored with {@link #snapshotPose()}.
+     * <p>
+     * The pose is not propagated, every property of a {@link Bone} changes
+     * at most once. {@code Bone} objects that were removed from this
+     * {@code Skeleton} in the meantime are skipped.
+     *
+     * @param snapshot The {@code PoseSnapshot}
+     */
+    public void restorePose(PoseSnapshot snapshot) {
+        snapshot.restore(this);
+    }
+
+    /**
+     * Creates a {@link ScratchPose}, a detached copy of the current pose,
+     * which can be solved without notifying any listeners.
+     *
+     * @return the new {@code ScratchPose}
+     */
+    public ScratchPose createScratchPose() {
+        return new ScratchPose(this);
+    }
+
+    private boolean batch;
+
+    void beginSolve() {
+        if (!batch && (collisionSolver != null)) {
+            collisionSolver.reset();
+        }
+    }
+
+    /**
+     * Starts solving several targets together, which share a single budget
+     * of {@link #collisionIterations}. The batch ends by resetting
+     * {@code batch}.
+     */
+    private void beginBatch() {
+        if (collisionSolver != null) {
+            collisionSolver.reset();
+        }
+        batch = true;
+    }
+
+    Point2D resolveCollision(Bone bone, BoneEnd end, Point2D fixed, Point2D free, double length) {
+        if (obstacles.isEmpty() && !isSelfCollision()) {
+            return free;
+        }
+        if (collisionSolver == null) {
+            collisionSolver = new CollisionSolver(this);
+        }
+        return collisionSolver.resolve(bone, end, fixed, free, length);
+    }
+
+    /**
+     * Returns the sum of the lengths of all {@link Bone} objects from
+     * {@code anchor} to {@code effector}, i.e. the maximum distance between
+     * the head of the anchor and the tail of the effector.
+     *
+     * @param anchor The first {@code Bone} of the chain
+     * @param effector The last {@code Bone} of the chain, either the anchor itself or one of its descendants
+     * @return the length of the chain
+     * @throws IllegalArgumentException if {@code effector} is not a descendant of {@code anchor}
+     */
+    public double getChainLength(Bone anchor, Bone effector) {
+        checkMember(anchor);
+        checkMember(effector);
+        double length = 0.0;
+        for (Bone bone = effector; bone != anchor; bone = bone.getParent()) {
+            if (bone == null) {
+                throw new IllegalArgumentException("The anchor is not an ancestor of the effector");
+            }
+            length += bone.getLength();
+        }
+        return length + anchor.getLength();
+    }
+
+    /**
+     * Checks whether the tail of {@code effector} might reach a point while
+     * the head of {@code anchor} stays in place.
+     * <p>
+     * Only the lengths of the {@code Bone} objects are considered, which
+     * allow to reach an annulus around the head of the anchor. Angle limits
+     * are ignored, therefore a return value of {@code true} does not
+     * guarantee, that the point can be reached. A return value of
+     * {@code false} does.
+     *
+     * @param anchor The first {@code Bone} of the chain
+     * @param effector The last {@code Bone} of the chain, either the anchor itself or one of its descendants
+     * @param x The x-coordinate of the point
+     * @param y The y-coordinate of the point
+     * @return {@code false}, if the point cannot be reached
+     * @throws IllegalArgumentException if {@code effector} is not a descendant of {@code anchor}
+     */
+    public boolean isReachable(Bone anchor, Bone effector, double x, double y) {
+        final double outer = getChainLength(anchor, effector);
+        double longest = anchor.getLength();
+        for (Bone bone = effector; bone != anchor; bone = bone.getParent()) {
+            longest = Math.max(longest, bone.getLength());
+        }
+        final double inner = Math.max(0.0, 2 * longest - outer);
+        final double distance = anchor.getCurrentHead().distance(x, y);
+        return (distance >= inner) && (distance <= outer);
+    }
+
+    private void checkMember(Bone bone) {
+        if (bone.getSkeleton() != this) {
+            throw new IllegalArgumentException("Bone is not part of this Skeleton");
+        }
+    }
+
+    private SpatialIndex spatialIndex;
+    SpatialIndex getSpatialIndex() {
+        if (spatialIndex == null) {
+            spatialIndex = new SpatialIndex(SpatialIndex.DEFAULT_CELL_SIZE);
+            for (final Bone bone : bones) {
+                spatialIndex.add(bone);
+            }
+        }
+        return spatialIndex;
+    }
+
+    void boneMoved(Bone bone) {
+        if (spatialIndex != null) {
+            spatialIndex.markDirty(bone);
+        }
+    }
+
+    void addBone(Bone bone) {
+        bone.setId(registry.add(bone));
+        bone.setIndex(bones.size());
+        bones.add(bone);
+        if (bone.getView() != null) {
+            addView(bone.getView());
+        }
+        if (spatialIndex != null) {
+            spatialIndex.add(bone);
+        }
+    }
+
+    void addBones(List<Bone> newBones) {
+        final List<Node> nodes = new ArrayList<>();
+        int index = bones.size();
+        for (final Bone bone : newBones) {
+            bone.setId(registry.add(bone));
+            bone.setIndex(index++);
+            final BoneView view = bone.getView();
+            if (view != null) {
+                view.setIndex(views.size());
+                views.add(view);
+                nodes.add(view.getGroup());
+            }
+            if (spatialIndex != null) {
+                spatialIndex.add(bone);
+            }
+        }
+        bones.addAll(newBones);
+        getChildren().addAll(nodes);
+    }
+
+    void removeBone(Bone bone) {
+        detachBone(bone);
+        if (bone.getView() != null) {
+            removeView(bone.getView());
+        }
+    }
+
+    void removeBones(List<Bone> removedBones) {
+        // swap-removal per bone keeps the costs proportional to the number of removed bones,
+        // the views are removed in a single pass to keep the drawing order of the remaining ones
+        final Set<Node> removedNodes = new HashSet<>();
+        for (final Bone bone : removedBones) {
+            detachBone(bone);
+            final BoneView view = bone.getView();
+            if (view != null) {
+                view.setIndex(-1);
+                removedNodes.add(view.getGroup());
+            }
+        }
+        if (!removedNodes.isEmpty()) {
+            int size = 0;
+            for (int i = 0, n = views.size(); i < n; i++) {
+                final BoneView view = views.get(i);
+                if (view.getIndex() >= 0) {
+                    view.setIndex(size);
+                    views.set(size++, view);
+                }
+            }
+            views.subList(size, views.size()).clear();
+            getChildren().removeAll(removedNodes);
+        }
+    }
+
+    private void detachBone(Bone bone) {
+        final int index = bone.getIndex();
+        final int last = bones.size() - 1;
+        assert bones.get(index) == bone;
+
+        final Bone lastBone = bones.remove(last);
+        if (index < last) {
+            bones.set(index, lastBone);
+            lastBone.setIndex(index);
+        }
+        if (spatialIndex != null) {
+            spatialIndex.remove(bone);
+        }
+        registry.remove(bone);
+        bone.setId(-1);
+        bone.setIndex(-1);
+    }
+
+    void addView(BoneView view) {
+        view.setIndex(views.size());
+        views.add(view);
+        getChildren().add(view.getGroup());
+    }
+
+    private void removeView(BoneView view) {
+        final int index = view.getIndex();
+        assert views.get(index) == view;
+
+        views.remove(index);
+        getChildren().remove(index);
+        for (int i = index, n = views.size(); i < n; i++) {
+            views.get(i).setIndex(i);
+        }
+        view.setIndex(-1);
+    }
+
+    void renameBone(Bone bone, String oldName, String newName) {
+        registry.rename(bone, oldName, newName);
     }
 
 }
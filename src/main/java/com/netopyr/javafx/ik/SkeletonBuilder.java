@@ -0,0 +1,153 @@
+/*
+ * Copyright 2013 Michael Heinrichs, http://netopyr.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netopyr.javafx.ik;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The class {@code SkeletonBuilder} assembles a tree of {@link Bone} objects
+ * and attaches it to a {@link Skeleton} in one step.
+ * <p>
+ * Adding a {@code Bone} to {@link Bone#getChildren()} or setting its
+ * {@link Skeleton} immediately recalculates the pose of the whole subtree and
+ * registers every {@code Bone} separately. For large trees this is expensive.
+ * A {@code SkeletonBuilder} records the tree first, calculates the initial
+ * pose in a single pass and adds all {@code Bone} objects to the
+ * {@code Skeleton} with a single list change.
+ * <p>
+ * Parents have to be added before their children. All {@code Bone} objects
+ * have to be new, i.e. they must not have a parent, children or a
+ * {@code Skeleton} yet.
+ */
+public class SkeletonBuilder {
+
+    private final List<Bone> bones = new ArrayList<>();
+    private final Map<Bone, List<Bone>> children = new LinkedHashMap<>();
+    private boolean applied;
+
+    protected SkeletonBuilder() {
+    }
+
+    /**
+     * Creates a new, empty {@code SkeletonBuilder}.
+     *
+     * @return the new {@code SkeletonBuilder}
+     */
+    public static SkeletonBuilder create() {
+        return new SkeletonBuilder();
+    }
+
+    /**
+     * Adds a root {@code Bone}.
+     *
+     * @param bone The {@link Bone} without a parent
+     * @return this {@code SkeletonBuilder}
+     */
+    public SkeletonBuilder root(Bone bone) {
+        register(bone);
+        return this;
+    }
+
+    /**
+     * Adds a {@code Bone} as a child of a {@code Bone} that was added before.
+     *
+     * @param parent The parent, which must already be part of this builder
+     * @param child The new child
+     * @return this {@code SkeletonBuilder}
+     */
+    public SkeletonBuilder child(Bone parent, Bone child) {
+        final List<Bone> siblings = children.get(parent);
+        if (siblings == null) {
+            throw new IllegalArgumentException("Parent has not been added to this builder");
+        }
+        register(child);
+        siblings.add(child);
+        return this;
+    }
+
+    /**
+     * Adds a chain of {@code Bone} objects. The first {@code Bone} becomes a
+     * child of {@code parent}, every following {@code Bone} a child of its
+     * predecessor.
+     *
+     * @param parent The parent of the chain, which must already be part of this builder
+     * @param chain The {@link Bone} objects of the chain
+     * @return this {@code SkeletonBuilder}
+     */
+    public SkeletonBuilder chain(Bone parent, Bone... chain) {
+        Bone iterator = parent;
+        for (final Bone bone : chain) {
+            child(iterator, bone);
+            iterator = bone;
+        }
+        return this;
+    }
+
+    /**
+     * Creates a new {@link Skeleton} containing all added {@code Bone} objects.
+     *
+     * @return the new {@code Skeleton}
+     */
+    public Skeleton build() {
+        final Skeleton skeleton = new Skeleton();
+        applyTo(skeleton);
+        return skeleton;
+    }
+
+    /**
+     * Adds all {@code Bone} objects to an existing {@link Skeleton}.
+     *
+     * @param skeleton The {@code Skeleton}
+     */
+    public void applyTo(Skeleton skeleton) {
+        if (applied) {
+            throw new IllegalStateException("SkeletonBuilder has already been applied");
+        }
+        applied = true;
+
+        for (final Bone bone : bones) {
+            bone.beginAssembly();
+        }
+        for (final Map.Entry<Bone, List<Bone>> entry : children.entrySet()) {
+            if (!entry.getValue().isEmpty()) {
+                entry.getKey().getChildren().addAll(entry.getValue());
+            }
+        }
+        // parents were added before their children, so a single pass calculates the pose
+        for (final Bone bone : bones) {
+            bone.endAssembly(skeleton);
+        }
+        skeleton.addBones(bones);
+    }
+
+    private void register(Bone bone) {
+        if (applied) {
+            throw new IllegalStateException("SkeletonBuilder has already been applied");
+        }
+        if (children.containsKey(bone)) {
+            throw new IllegalArgumentException("Bone has already been added to this builder");
+        }
+        if ((bone.getParent() != null) || (bone.getSkeleton() != null) || !bone.getChildren().isEmpty()) {
+            throw new IllegalArgumentException("Bone is already part of a tree");
+        }
+        bones.add(bone);
+        children.put(bone, new ArrayList<Bone>());
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2013 Michael Heinrichs, http://netopyr.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netopyr.javafx.ik;
+
+import javafx.animation.AnimationTimer;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Calls {@link Skeleton#pulse()} of all registered {@link Skeleton} objects
+ * once per pulse.
+ * <p>
+ * A single {@code AnimationTimer} is shared by all {@code Skeleton} objects.
+ * It only runs while at least one {@code Skeleton} is registered.
+ */
+final class SkeletonPulse {
+
+    private static final Set<Skeleton> skeletons = new LinkedHashSet<>();
+
+    private static final AnimationTimer timer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            for (final Skeleton skeleton : skeletons.toArray(new Skeleton[skeletons.size()])) {
+                skeleton.pulse();
+            }
+        }
+    };
+
+    private SkeletonPulse() {
+    }
+
+    static void register(Skeleton skeleton) {
+        if (skeletons.add(skeleton) && (skeletons.size() == 1)) {
+            timer.start();
+        }
+    }
+
+    static void unregister(Skeleton skeleton) {
+        if (skeletons.remove(skeleton) && skeletons.isEmpty()) {
+            timer.stop();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2013 Michael Heinrichs, http://netopyr.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netopyr.javafx.ik;
+
+/**
+ * The result of {@link ChainSolver#solve(double, double)}.
+ */
+public final class SolveResult {
+
+    /**
+     * {@code true}, if the effector is within the tolerance of the target.
+     */
+    private final boolean converged;
+    public boolean isConverged() {return converged;}
+
+    /**
+     * The number of iterations, {@code 0} if solving was skipped.
+     */
+    private final int iterations;
+    public int getIterations() {return iterations;}
+
+    /**
+     * The remaining distance between effector and target.
+     */
+    private final double residual;
+    public double getResidual() {return residual;}
+
+    SolveResult(boolean converged, int iterations, double residual) {
+        this.converged = converged;
+        this.iterations = iterations;
+        this.residual = residual;
+    }
+
+    @Override
+    public String toString() {
+        return "SolveResult [converged = " + converged + ", iterations = " + iterations + ", residual = " + residual + "]";
+    }
+}
@@ -0,0 +1,302 @@
+/*
+ * Copyright 2013 Michael Heinrichs, http://netopyr.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netopyr.javafx.ik;
+
+import javafx.geometry.Point2D;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A uniform grid over the segments of all {@link Bone} objects of a
+ * {@link Skeleton}.
+ * <p>
+ * Every {@code Bone} is stored in all cells touched by the bounding box of
+ * its segment. Moving a {@code Bone} only marks it as dirty, the cells are
+ * updated lazily before the next query. All per-{@code Bone} data is stored
+ * in arrays indexed by {@link Bone#getId()}.
+ */
+final class SpatialIndex {
+
+    static final double DEFAULT_CELL_SIZE = 64.0;
+
+    private final double cellSize;
+    private final Map<Long, Cell> cells = new HashMap<>();
+
+    private Bone[] entries = new Bone[16];
+    private int[] minCellX = new int[16];
+    private int[] minCellY = new int[16];
+    private int[] maxCellX = new int[16];
+    private int[] maxCellY = new int[16];
+    private boolean[] inserted = new boolean[16];
+    private boolean[] dirty = new boolean[16];
+
+    private Bone[] dirtyBones = new Bone[16];
+    private int dirtyCount;
+
+    SpatialIndex(double cellSize) {
+        this.cellSize = cellSize;
+    }
+
+    void add(Bone bone) {
+        final int id = bone.getId();
+        ensureCapacity(id + 1);
+        entries[id] = bone;
+        inserted[id] = false;
+        dirty[id] = false;
+        markDirty(bone);
+    }
+
+    void remove(Bone bone) {
+        final int id = bone.getId();
+        if ((id >= 0) && (id < entries.length) && (entries[id] == bone)) {
+            if (inserted[id]) {
+                removeFromCells(bone, id);
+            }
+            entries[id] = null;
+            inserted[id] = false;
+            dirty[id] = false;
+        }
+    }
+
+    void markDirty(Bone bone) {
+        final int id = bone.getId();
+        if ((id >= 0) && (id < entries.length) && (entries[id] == bone) && !dirty[id]) {
+            dirty[id] = true;
+            if (dirtyCount == dirtyBones.length) {
+                dirtyBones = Arrays.copyOf(dirtyBones, 2 * dirtyCount);
+            }
+            dirtyBones[dirtyCount++] = bone;
+        }
+    }
+
+    /**
+     * Finds the joint closest to a point.
+     *
+     * @param x The x-coordinate of the point
+     * @param y The y-coordinate of the point
+     * @param maxDistance The maximum distance between point and joint
+     * @param end The end to consider or {@code null}, if heads and tails are considered
+     * @return the closest joint or {@code null}, if no joint is closer than {@code maxDistance}
+     */
+    BonePick nearestJoint(double x, double y, double maxDistance, BoneEnd end) {
+        flush();
+        Bone bestBone = null;
+        BoneEnd bestEnd = null;
+        Point2D bestPoint = null;
+        double bestDistance = maxDistance;
+        for (final Cell cell : getCells(x, y, maxDistance)) {
+            for (int i = 0; i < cell.size; i++) {
+                final Bone bone = cell.bones[i];
+                if (bone.isPickable()) {
+                    if (end != BoneEnd.TAIL) {
+                        final Point2D head = bone.getCurrentHead();
+                        final double distance = head.distance(x, y);
+                        if (distance <= bestDistance) {
+                            bestBone = bone;
+                            bestEnd = BoneEnd.HEAD;
+                            bestPoint = head;
+                            bestDistance = distance;
+                        }
+                    }
+                    if (end != BoneEnd.HEAD) {
+                        final Point2D tail = bone.getCurrentTail();
+                        final double distance = tail.distance(x, y);
+                        if (distance <= bestDistance) {
+                            bestBone = bone;
+                            bestEnd = BoneEnd.TAIL;
+                            bestPoint = tail;
+                            bestDistance = distance;
+                        }
+                    }
+                }
+            }
+        }
+        return (bestBone == null)? null : new BonePick(bestBone, bestEnd, bestPoint, bestDistance);
+    }
+
+    /**
+     * Finds the segment closest to a point.
+     *
+     * @param x The x-coordinate of the point
+     * @param y The y-coordinate of the point
+     * @param maxDistance The maximum distance between point and segment
+     * @return the closest segment or {@code null}, if no segment is closer than {@code maxDistance}
+     */
+    BonePick nearestSegment(double x, double y, double maxDistance) {
+        flush();
+        Bone bestBone = null;
+        double bestX = 0.0;
+        double bestY = 0.0;
+        double bestDistance = maxDistance;
+        for (final Cell cell : getCells(x, y, maxDistance)) {
+            for (int i = 0; i < cell.size; i++) {
+                final Bone bone = cell.bones[i];
+                if (bone.isPickable()) {
+                    final Point2D head = bone.getCurrentHead();
+                    final Point2D tail = bone.getCurrentTail();
+                    final double dx = tail.getX() - head.getX();
+                    final double dy = tail.getY() - head.getY();
+                    final double lengthSquared = dx * dx + dy * dy;
+                    final double t = (lengthSquared == 0.0)? 0.0
+                            : Math.max(0.0, Math.min(((x - head.getX()) * dx + (y - head.getY()) * dy) / lengthSquared, 1.0));
+                    final double px = head.getX() + t * dx;
+                    final double py = head.getY() + t * dy;
+                    final double distance = Math.hypot(x - px, y - py);
+                    if (distance <= bestDistance) {
+                        bestBone = bone;
+                        bestX = px;
+                        bestY = py;
+                        bestDistance = distance;
+                    }
+                }
+            }
+        }
+        return (bestBone == null)? null : new BonePick(bestBone, null, new Point2D(bestX, bestY), bestDistance);
+    }
+
+    /**
+     * Adds all {@link Bone} objects whose cells are within a distance of a
+     * point to a list. A {@code Bone} may be added more than once.
+     */
+    void collect(double x, double y, double distance, List<Bone> result) {
+        flush();
+        for (final Cell cell : getCells(x, y, distance)) {
+            for (int i = 0; i < cell.size; i++) {
+                result.add(cell.bones[i]);
+            }
+        }
+    }
+
+    private Iterable<Cell> getCells(double x, double y, double distance) {
+        final int fromX = cell(x - distance);
+        final int toX   = cell(x + distance);
+        final int fromY = cell(y - distance);
+        final int toY   = cell(y + distance);
+        final long count = ((long) toX - fromX + 1) * ((long) toY - fromY + 1);
+        if (count >= cells.size()) {
+            return cells.values();
+        }
+        final Cell[] result = new Cell[(int) count];
+        int size = 0;
+        for (int cx = fromX; cx <= toX; cx++) {
+            for (int cy = fromY; cy <= toY; cy++) {
+                final Cell cell = cells.get(key(cx, cy));
+                if (cell != null) {
+                    result[size++] = cell;
+                }
+            }
+        }
+        return Arrays.asList(result).subList(0, size);
+    }
+
+    private void flush() {
+        for (int i = 0; i < dirtyCount; i++) {
+            final Bone bone = dirtyBones[i];
+            dirtyBones[i] = null;
+            final int id = bone.getId();
+            if ((id >= 0) && (id < entries.length) && (entries[id] == bone) && dirty[id]) {
+                dirty[id] = false;
+                if (inserted[id]) {
+                    removeFromCells(bone, id);
+                }
+                insertIntoCells(bone, id);
+            }
+        }
+        dirtyCount = 0;
+    }
+
+    private void insertIntoCells(Bone bone, int id) {
+        final Point2D head = bone.getCurrentHead();
+        final Point2D tail = bone.getCurrentTail();
+        minCellX[id] = cell(Math.min(head.getX(), tail.getX()));
+        minCellY[id] = cell(Math.min(head.getY(), tail.getY()));
+        maxCellX[id] = cell(Math.max(head.getX(), tail.getX()));
+        maxCellY[id] = cell(Math.max(head.getY(), tail.getY()));
+        for (int cx = minCellX[id]; cx <= maxCellX[id]; cx++) {
+            for (int cy = minCellY[id]; cy <= maxCellY[id]; cy++) {
+                final Long key = key(cx, cy);
+                Cell cell = cells.get(key);
+                if (cell == null) {
+                    cell = new Cell();
+                    cells.put(key, cell);
+                }
+                cell.add(bone);
+            }
+        }
+        inserted[id] = true;
+    }
+
+    private void removeFromCells(Bone bone, int id) {
+        for (int cx = minCellX[id]; cx <= maxCellX[id]; cx++) {
+            for (int cy = minCellY[id]; cy <= maxCellY[id]; cy++) {
+                final Long key = key(cx, cy);
+                final Cell cell = cells.get(key);
+                if ((cell != null) && cell.remove(bone) && (cell.size == 0)) {
+                    cells.remove(key);
+                }
+            }
+        }
+        inserted[id] = false;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > entries.length) {
+            final int newLength = Math.max(capacity, 2 * entries.length);
+            entries = Arrays.copyOf(entries, newLength);
+            minCellX = Arrays.copyOf(minCellX, newLength);
+            minCellY = Arrays.copyOf(minCellY, newLength);
+            maxCellX = Arrays.copyOf(maxCellX, newLength);
+            maxCellY = Arrays.copyOf(maxCellY, newLength);
+            inserted = Arrays.copyOf(inserted, newLength);
+            dirty = Arrays.copyOf(dirty, newLength);
+        }
+    }
+
+    private int cell(double value) {
+        return (int) Math.floor(value / cellSize);
+    }
+
+    private static long key(int cx, int cy) {
+        return ((long) cx << 32) | (cy & 0xFFFFFFFFL);
+    }
+
+    private static final class Cell {
+        private Bone[] bones = new Bone[4];
+        private int size;
+
+        private void add(Bone bone) {
+            if (size == bones.length) {
+                bones = Arrays.copyOf(bones, 2 * size);
+            }
+            bones[size++] = bone;
+        }
+
+        private boolean remove(Bone bone) {
+            for (int i = 0; i < size; i++) {
+                if (bones[i] == bone) {
+                    bones[i] = bones[--size];
+                    bones[size] = null;
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
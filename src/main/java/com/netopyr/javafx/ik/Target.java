@@ -0,0 +1,65 @@
+/*
+ * Copyright 2013 Michael Heinrichs, http://netopyr.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netopyr.javafx.ik;
+
+import javafx.geometry.Point2D;
+
+/**
+ * A pending move of one end of a {@link Bone}.
+ * <p>
+ * Two {@code Target} objects are equal, if they refer to the same end of the
+ * same {@code Bone}, which allows to keep only the latest {@code Target}.
+ */
+final class Target {
+
+    final Bone bone;
+    final BoneEnd end;
+    final double x;
+    final double y;
+
+    Target(Bone bone, BoneEnd end, double x, double y) {
+        this.bone = bone;
+        this.end = end;
+        this.x = x;
+        this.y = y;
+    }
+
+    void apply() {
+        if (end == BoneEnd.HEAD) {
+            bone.applyHead(new Point2D(x, y));
+        } else {
+            bone.applyTail(new Point2D(x, y));
+        }
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof Target)) {
+            return false;
+        }
+        final Target other = (Target) obj;
+        return (bone == other.bone) && (end == other.end);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * System.identityHashCode(bone) + end.hashCode();
+    }
+}
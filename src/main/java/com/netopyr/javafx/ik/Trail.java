@@ -0,0 +1,210 @@
+/*
+ * Copyright 2013 Michael Heinrichs, http://netopyr.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netopyr.javafx.ik;
+
+import javafx.geometry.Point2D;
+
+/**
+ * The class {@code Trail} moves a chain of {@link Bone} objects like a snake:
+ * every joint follows the path of the head of the first {@code Bone}.
+ * <p>
+ * The path is recorded in a ring buffer of points with their cumulative arc
+ * length. Whenever the head moves, every joint of the chain is placed on the
+ * path at a fixed arc length behind the head, which is the sum of the lengths
+ * of the {@code Bone} objects in front of it. Placing the joints does not
+ * need any trigonometric functions, only the {@link Bone#rotateProperty()}
+ * requires one call of {@code atan2} per {@code Bone}.
+ * <p>
+ * Joints are placed by arc length, therefore on curved paths the distance
+ * between head and tail of a {@code Bone} can be slightly shorter than its
+ * length. Angle limits are ignored. A point is only recorded, if it is at
+ * least {@link #resolution} away from the previous one. The {@code capacity}
+ * times the {@code resolution} should exceed the length of the chain, beyond
+ * the oldest recorded point the path is extended in a straight line.
+ */
+public class Trail {
+
+    private static final int DEFAULT_CAPACITY = 256;
+    private static final double DEFAULT_RESOLUTION = 2.0;
+
+    private final BoneChain chain;
+    private final double[] offsets;
+
+    private final double[] pathX;
+    private final double[] pathY;
+    private final double[] pathArc;
+    private int newest = -1;
+    private int size;
+
+    private double headX;
+    private double headY;
+    private double headArc;
+
+    private final double[] jointX;
+    private final double[] jointY;
+    private final double[] rotates;
+    private final double[] angles;
+
+    /**
+     * The minimum distance between two recorded points of the path.
+     */
+    private double resolution = DEFAULT_RESOLUTION;
+    public final double getResolution() {return resolution;}
+    public final void setResolution(double resolution) {this.resolution = resolution;}
+
+    /**
+     * The constructor of {@code Trail}
+     *
+     * @param first The first {@link Bone} of the chain, which has to be a root
+     * @param last The last {@code Bone} of the chain, either {@code first} itself or one of its descendants
+     */
+    public Trail(Bone first, Bone last) {
+        this(first, last, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * The constructor of {@code Trail}
+     *
+     * @param first The first {@link Bone} of the chain, which has to be a root
+     * @param last The last {@code Bone} of the chain, either {@code first} itself or one of its descendants
+     * @param capacity The maximum number of recorded points of the path
+     */
+    public Trail(Bone first, Bone last, int capacity) {
+        if (first.getParent() != null) {
+            throw new IllegalArgumentException("The first bone of a trail must not have a parent");
+        }
+        if (capacity < 2) {
+            throw new IllegalArgumentException("The capacity must be at least 2");
+        }
+        chain = new BoneChain(first, last, "The first bone is not an ancestor of the last bone");
+        final int size = chain.size();
+
+        offsets = new double[size + 1];
+        for (int i = 0; i < size; i++) {
+            offsets[i + 1] = offsets[i] + chain.lengths[i];
+        }
+        jointX = new double[size + 1];
+        jointY = new double[size + 1];
+        rotates = new double[size];
+        angles = new double[size];
+
+        pathX = new double[capacity];
+        pathY = new double[capacity];
+        pathArc = new double[capacity];
+
+        // the current pose of the chain is the initial path, starting with its oldest point
+        final Point2D end = last.getCurrentTail();
+        record(end.getX(), end.getY(), 0.0);
+        for (int i = size - 1; i >= 0; i--) {
+            final Point2D head = chain.bones[i].getCurrentHead();
+            final double arc = pathArc[newest] + Math.hypot(head.getX() - pathX[newest], head.getY() - pathY[newest]);
+            if (i > 0) {
+                record(head.getX(), head.getY(), arc);
+            } else {
+                headX = head.getX();
+                headY = head.getY();
+                headArc = arc;
+            }
+        }
+    }
+
+    public final Bone getFirst() {return chain.getFirst();}
+    public final Bone getLast() {return chain.getLast();}
+    public final int getCapacity() {return pathX.length;}
+
+    public void moveHead(Point2D point) {
+        moveHead(point.getX(), point.getY());
+    }
+
+    /**
+     * Moves the head of the first {@link Bone} and lets all other joints
+     * follow its path.
+     *
+     * @param x The x-coordinate of the new head
+     * @param y The y-coordinate of the new head
+     */
+    public void moveHead(double x, double y) {
+        if ((x == headX) && (y == headY)) {
+            return;
+        }
+        final double dx = x - pathX[newest];
+        final double dy = y - pathY[newest];
+        final double distance = Math.sqrt(dx * dx + dy * dy);
+        headX = x;
+        headY = y;
+        headArc = pathArc[newest] + distance;
+        if (distance >= resolution) {
+            record(x, y, headArc);
+        }
+        place();
+        store();
+    }
+
+    private void record(double x, double y, double arc) {
+        newest = (newest + 1) % pathX.length;
+        pathX[newest] = x;
+        pathY[newest] = y;
+        pathArc[newest] = arc;
+        size = Math.min(size + 1, pathX.length);
+    }
+
+    private void place() {
+        final int capacity = pathX.length;
+        // the segment of the path between the newer point (x0, y0) and the older point (x1, y1)
+        double x0 = headX;
+        double y0 = headY;
+        double arc0 = headArc;
+        int older = newest;
+        int remaining = size;
+        if ((size > 1) && (pathX[older] == x0) && (pathY[older] == y0)) {
+            older = (older + capacity - 1) % capacity;
+            remaining--;
+        }
+        double x1 = pathX[older];
+        double y1 = pathY[older];
+        double arc1 = pathArc[older];
+        remaining--;
+
+        for (int i = 0; i < offsets.length; i++) {
+            final double arc = headArc - offsets[i];
+            while ((arc < arc1) && (remaining > 0)) {
+                x0 = x1;
+                y0 = y1;
+                arc0 = arc1;
+                older = (older + capacity - 1) % capacity;
+                x1 = pathX[older];
+                y1 = pathY[older];
+                arc1 = pathArc[older];
+                remaining--;
+            }
+            // beyond the oldest point, the last segment is extended
+            final double t = (arc0 == arc1)? 0.0 : (arc0 - arc) / (arc0 - arc1);
+            jointX[i] = x0 + t * (x1 - x0);
+            jointY[i] = y0 + t * (y1 - y0);
+        }
+    }
+
+    private void store() {
+        final int n = chain.size();
+        for (int i = 0; i < n; i++) {
+            final double rotate = 180.0 * Math.atan2(jointY[i + 1] - jointY[i], jointX[i + 1] - jointX[i]) / Math.PI;
+            rotates[i] = rotate;
+            angles[i] = (i == 0)? rotate : Angles.borderAngle(rotate - rotates[i - 1]);
+        }
+        chain.store(new Point2D(jointX[0], jointY[0]), jointX, jointY, rotates, angles);
+    }
+}
@@ -17,10 +17,9 @@
 package com.netopyr.javafx.ik.com.netopyr.javafx.ik.transitions;
 
 import com.netopyr.javafx.ik.Bone;
-import javafx.animation.Transition;
 import javafx.util.Duration;
 
-public abstract class AbstractIKTransition extends Transition {
+public abstract class AbstractIKTransition extends AbstractTranslateTransition {
 
     /**
      * The {@link com.netopyr.javafx.ik.Bone} which is affected by this transition.
@@ -28,46 +27,6 @@ public abstract class AbstractIKTransition extends Transition {
     private final Bone bone;
     public final Bone getBone() {return bone;}
 
-    /**
-     * The duration of this {@code Transition}.
-     */
-    private final Duration duration;
-    public final Duration getDuration() {return duration;}
-
-    /**
-     * Specifies the start X coordinate value of this transition.
-     */
-    private final double fromX;
-    public final double getFromX() {return fromX;}
-
-    /**
-     * Specifies the start Y coordinate value of this transition.
-     */
-    private final double fromY;
-    public final double getFromY() {return fromY;}
-
-    /**
-     * Specifies the delta of the X coordinate of this transition.
-     */
-    private final double byX;
-    public final double getByX() {return byX;}
-
-    /**
-     * Specifies the delta of the Y coordinate of this transition.
-     */
-    private final double byY;
-    public final double getByY() {return byY;}
-
-    /**
-     * Specifies the end X coordinate value of this transition.
-     */
-    public final double getToX() {return fromX + byX;}
-
-    /**
-     * Specifies the stop Y coordinate value of this transition.
-     */
-    public final double getToY() {return fromY + byY;}
-
     /**
      * The constructor of {@code AbstractIKTransition}
      *
@@ -79,13 +38,8 @@ public abstract class AbstractIKTransition extends Transition {
      * @param byY The delta of the Y coordinate
      */
     public AbstractIKTransition(Bone bone, Duration duration, double fromX, double fromY, double byX, double byY) {
+        super(duration, fromX, fromY, byX, byY);
         this.bone = bone;
-        this.duration = duration;
-        this.fromX = fromX;
-        this.fromY = fromY;
-        this.byX = byX;
-        this.byY = byY;
-        setCycleDuration(duration);
     }
 
 }
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2013 Michael Heinrichs, http://netopyr.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netopyr.javafx.ik.com.netopyr.javafx.ik.transitions;
+
+import com.netopyr.javafx.ik.Trail;
+import javafx.geometry.Point2D;
+import javafx.util.Duration;
+
+public class TranslateTrailTransition extends AbstractTranslateTransition {
+
+    /**
+     * The {@link com.netopyr.javafx.ik.Trail} which is affected by this transition.
+     */
+    private final Trail trail;
+    public final Trail getTrail() {return trail;}
+
+    /**
+     * The constructor of {@code TranslateTrailTransition}
+     *
+     * @param trail The {@link Trail} affected by this transition
+     * @param duration The duration
+     * @param fromX The start X coordinate
+     * @param fromY The start Y coordinate
+     * @param byX The delta of the X coordinate
+     * @param byY The delta of the Y coordinate
+     */
+    public TranslateTrailTransition(Trail trail, Duration duration, double fromX, double fromY, double byX, double byY) {
+        super(duration, fromX, fromY, byX, byY);
+        this.trail = trail;
+    }
+
+    /**
+     * The constructor of {@code TranslateTrailTransition}
+     *
+     * @param trail The {@link Trail} affected by this transition
+     * @param duration The duration
+     * @param byX The delta of the X coordinate
+     * @param byY The delta of the Y coordinate
+     */
+    public TranslateTrailTransition(Trail trail, Duration duration, double byX, double byY) {
+        this(trail, duration, trail.getFirst().getCurrentHead().getX(), trail.getFirst().getCurrentHead().getY(), byX, byY);
+    }
+
+    /**
+     * The constructor of {@code TranslateTrailTransition}
+     *
+     * @param trail The {@link Trail} affected by this transition
+     * @param duration The duration
+     * @param by The delta
+     */
+    public TranslateTrailTransition(Trail trail, Duration duration, Point2D by) {
+        this(trail, duration, by.getX(), by.getY());
+    }
+
+    @Override
+    protected void interpolate(double v) {
+        final double x = getFromX() + v * getByX();
+        final double y = getFromY() + v * getByY();
+        trail.moveHead(x, y);
+    }
+}
@@ -17,8 +17,10 @@
 package com.netopyr.javafx.ik.samples;
 
 import com.netopyr.javafx.ik.Bone;
+import com.netopyr.javafx.ik.RigDefinition;
 import com.netopyr.javafx.ik.Skeleton;
-import com.netopyr.javafx.ik.com.netopyr.javafx.ik.transitions.TranslateHeadTransition;
+import com.netopyr.javafx.ik.Trail;
+import com.netopyr.javafx.ik.com.netopyr.javafx.ik.transitions.TranslateTrailTransition;
 import javafx.animation.Animation;
 import javafx.application.Application;
 import javafx.event.EventHandler;
@@ -42,13 +44,19 @@ public class Caterpillar extends Application {
     private static final int WIDTH = 1280;
     private static final int HEIGHT = 800;
     private static final double SLOWDOWN = 2;
+    private static final String HEAD = "head";
+    private static final String TAIL = "tail";
+    private static final int BODY_LENGTH = 15;
 
     private Animation runningAnimation;
 
     @Override
     public void start(Stage stage) throws Exception {
         final Skeleton caterpillar = createCaterpillar();
-        final Bone head = caterpillar.getBones().get(0);
+        final Bone head = caterpillar.getBone(HEAD);
+        // the body follows the path of the head, which ignores the -60..60 limits of the body bones
+        // with new TranslateHeadTransition(head, ...) the body is dragged along within its limits instead
+        final Trail trail = new Trail(head, caterpillar.getBone(TAIL));
 
         final Node background = new Rectangle(WIDTH, HEIGHT, Color.BLACK);
         background.setOnMousePressed(new EventHandler<MouseEvent>() {
@@ -61,7 +69,7 @@ public class Caterpillar extends Application {
                 if (runningAnimation != null) {
                     runningAnimation.stop();
                 }
-                runningAnimation = new TranslateHeadTransition(caterpillar.getBones().get(0), duration, targetX - current.getX(), targetY - current.getY());
+                runningAnimation = new TranslateTrailTransition(trail, duration, targetX - current.getX(), targetY - current.getY());
                 runningAnimation.play();
             }
         });
@@ -77,12 +85,8 @@ public class Caterpillar extends Application {
     }
 
     private static Skeleton createCaterpillar() {
-        final Skeleton skeleton = new Skeleton();
-        skeleton.setTranslateX(WIDTH / 4);
-        skeleton.setTranslateY(HEIGHT / 2);
-
-        final Bone head = new Bone(20);
-        head.setSkeleton(skeleton);
+        final Skeleton skeleton = createDefinition().createSkeleton();
+        final Bone head = skeleton.getBone(HEAD);
         head.getContent().add(new Circle(10,
                 RadialGradientBuilder.create()
                         .centerX(0.25)
@@ -91,8 +95,6 @@ public class Caterpillar extends Application {
                         .stops(new Stop(0.0, Color.RED), new Stop(1.0, Color.DARKRED))
                 .build()));
 
-        Bone iterator = head;
-
         final Paint fill =
                 RadialGradientBuilder.create()
                         .centerX(0.25)
@@ -102,17 +104,41 @@ public class Caterpillar extends Application {
                 .build();
 
 
-        for (int i=0; i<15; i++) {
-            final Bone bone = new Bone(20, -60, 60);
-            bone.getContent().add(new Circle(10, fill));
-
-            iterator.getChildren().add(bone);
-            iterator = bone;
+        Bone iterator = head;
+        while (!iterator.getChildren().isEmpty()) {
+            iterator = iterator.getChildren().get(0);
+            iterator.getContent().add(new Circle(10, fill));
         }
 
+        skeleton.setTranslateX(WIDTH / 4);
+        skeleton.setTranslateY(HEIGHT / 2);
         return skeleton;
     }
 
+    /**
+     * Creates the {@link RigDefinition} of a caterpillar: a head and a body
+     * of 15 bones, which can bend by at most 60 degrees. The same definition
+     * can be shared by any number of caterpillars.
+     */
+    static RigDefinition createDefinition() {
+        final int count = BODY_LENGTH + 1;
+        final int[] parents = new int[count];
+        final double[] lengths = new double[count];
+        final double[] restAngles = new double[count];
+        final double[] minAngles = new double[count];
+        final double[] maxAngles = new double[count];
+        final String[] names = new String[count];
+        for (int i = 0; i < count; i++) {
+            parents[i] = i - 1;
+            lengths[i] = 20;
+            minAngles[i] = (i == 0)? -180 : -60;
+            maxAngles[i] = (i == 0)? 180 : 60;
+        }
+        names[0] = HEAD;
+        names[BODY_LENGTH] = TAIL;
+        return new RigDefinition(parents, lengths, restAngles, minAngles, maxAngles, names);
+    }
+
     public static void main(String... args) {
         launch(args);
     }
@@ -0,0 +1,484 @@
+/*
+ * Copyright 2013 Michael Heinrichs, http://netopyr.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netopyr.javafx.ik.samples;
+
+import com.netopyr.javafx.ik.Bone;
+import com.netopyr.javafx.ik.RigDefinition;
+import com.netopyr.javafx.ik.RigPose;
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * A headless load test, which solves a crowd of rigs similar to the ones of
+ * {@link Caterpillar} and {@link Dummy} for a fixed duration.
+ * <p>
+ * The rigs are plain trees of {@link Bone} objects without content, which
+ * are not attached to a {@code Skeleton}. No {@code Node} is created, so no
+ * JavaFX platform is needed. Features of the {@code Skeleton}, i.e. picking,
+ * collisions and the level of detail, are not part of the measurement.
+ * Every frame, the head of each caterpillar is moved
+ * with {@link Bone#moveHead(double, double)} and the hands and feet of each
+ * dummy with {@link Bone#moveTail(double, double)}. With {@code --solver pose},
+ * the rigs are instances of a shared {@link RigDefinition} instead. Targets
+ * are either interpolated linearly towards random points, the same way the
+ * transitions do it, or follow scripted curves.
+ * <p>
+ * The solve time per frame, the allocation rate and the GC pauses of the
+ * measured period are written to {@code System.out} as JSON.
+ * <p>
+ * Options: {@code --caterpillars <n>}, {@code --dummies <n>},
+ * {@code --duration <seconds>}, {@code --warmup <seconds>},
+ * {@code --fps <frames>}, {@code --targets random|scripted},
+ * {@code --solver bones|pose}, {@code --seed <long>}
+ */
+public class CrowdLoadTest {
+
+    private static final int CATERPILLAR_SEGMENTS = 15;
+    private static final double SLOWDOWN = 2;
+    private static final double RANGE = 200.0;
+
+    private int caterpillars = 100;
+    private int dummies = 100;
+    private double duration = 10.0;
+    private double warmup = 2.0;
+    private double fps = 60.0;
+    private boolean scripted = false;
+    private boolean poses = false;
+    private long seed = 42L;
+
+    private final List<Driver> drivers = new ArrayList<>();
+    private int boneCount;
+
+    private final List<Long> gcPauses = new ArrayList<>();
+    private volatile boolean measuring;
+
+    public static void main(String... args) {
+        final CrowdLoadTest test = new CrowdLoadTest();
+        try {
+            test.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: CrowdLoadTest [--caterpillars n] [--dummies n] [--duration seconds] [--warmup seconds]"
+                    + " [--fps frames] [--targets random|scripted] [--solver bones|pose] [--seed long]");
+            System.exit(2);
+        }
+        test.run();
+    }
+
+    private void parse(String... args) {
+        for (int i = 0; i < args.length; i += 2) {
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + args[i]);
+            }
+            final String value = args[i + 1];
+            try {
+                switch (args[i]) {
+                    case "--caterpillars": caterpillars = Integer.parseInt(value); break;
+                    case "--dummies": dummies = Integer.parseInt(value); break;
+                    case "--duration": duration = Double.parseDouble(value); break;
+                    case "--warmup": warmup = Double.parseDouble(value); break;
+                    case "--fps": fps = Double.parseDouble(value); break;
+                    case "--seed": seed = Long.parseLong(value); break;
+                    case "--targets": scripted = parseChoice(value, "random", "scripted"); break;
+                    case "--solver": poses = parseChoice(value, "bones", "pose"); break;
+                    default: throw new IllegalArgumentException("Unknown option " + args[i]);
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid value for " + args[i] + ": " + value);
+            }
+        }
+    }
+
+    private static boolean parseChoice(String value, String no, String yes) {
+        if (yes.equals(value)) {
+            return true;
+        }
+        if (no.equals(value)) {
+            return false;
+        }
+        throw new IllegalArgumentException("Expected " + no + " or " + yes + " but got " + value);
+    }
+
+    private void run() {
+        final Random random = new Random(seed);
+        createCrowd(random);
+        registerGcListeners();
+
+        final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        final com.sun.management.ThreadMXBean allocationBean =
+                ((threadBean instanceof com.sun.management.ThreadMXBean)
+                        && ((com.sun.management.ThreadMXBean) threadBean).isThreadAllocatedMemorySupported())
+                ? (com.sun.management.ThreadMXBean) threadBean : null;
+        final long threadId = Thread.currentThread().getId();
+
+        long[] frameTimes = new long[1024];
+        int frames = 0;
+        double time = 0.0;
+        final double frameDuration = 1.0 / fps;
+
+        final long warmupEnd = System.nanoTime() + (long) (warmup * 1e9);
+        while (System.nanoTime() < warmupEnd) {
+            time += frameDuration;
+            frame(time);
+        }
+
+        final long allocatedStart = (allocationBean == null)? -1 : allocationBean.getThreadAllocatedBytes(threadId);
+        measuring = true;
+        final long start = System.nanoTime();
+        final long end = start + (long) (duration * 1e9);
+        long now = start;
+        while (now < end) {
+            time += frameDuration;
+            frame(time);
+            final long next = System.nanoTime();
+            if (frames == frameTimes.length) {
+                frameTimes = Arrays.copyOf(frameTimes, 2 * frames);
+            }
+            frameTimes[frames++] = next - now;
+            now = next;
+        }
+        measuring = false;
+        final long allocatedEnd = (allocationBean == null)? -1 : allocationBean.getThreadAllocatedBytes(threadId);
+
+        report(Arrays.copyOf(frameTimes, frames), (now - start) / 1e9, allocatedEnd - allocatedStart, allocationBean != null);
+    }
+
+    private void frame(double time) {
+        for (final Driver driver : drivers) {
+            driver.update(time);
+        }
+    }
+
+    private void report(long[] frameTimes, double seconds, long allocated, boolean allocationSupported) {
+        final int frames = frameTimes.length;
+        long sum = 0;
+        for (final long frameTime : frameTimes) {
+            sum += frameTime;
+        }
+        Arrays.sort(frameTimes);
+        long gcTotal = 0;
+        long gcMax = 0;
+        final int gcCount;
+        synchronized (gcPauses) {
+            gcCount = gcPauses.size();
+            for (final long pause : gcPauses) {
+                gcTotal += pause;
+                gcMax = Math.max(gcMax, pause);
+            }
+        }
+
+        final StringBuilder json = new StringBuilder();
+        json.append("{\n");
+        json.append("  \"config\": {")
+                .append("\"caterpillars\": ").append(caterpillars)
+                .append(", \"dummies\": ").append(dummies)
+                .append(", \"bones\": ").append(boneCount)
+                .append(", \"targets\": \"").append(scripted? "scripted" : "random").append('"')
+                .append(", \"solver\": \"").append(poses? "pose" : "bones").append('"')
+                .append(", \"fps\": ").append(format(fps))
+                .append(", \"duration\": ").append(format(duration))
+                .append(", \"warmup\": ").append(format(warmup))
+                .append(", \"seed\": ").append(seed)
+                .append("},\n");
+        json.append("  \"frames\": ").append(frames).append(",\n");
+        json.append("  \"seconds\": ").append(format(seconds)).append(",\n");
+        json.append("  \"solveTimeMillis\": {")
+                .append("\"mean\": ").append(format((frames == 0)? 0.0 : sum / 1e6 / frames))
+                .append(", \"p50\": ").append(format(percentile(frameTimes, 0.5) / 1e6))
+                .append(", \"p99\": ").append(format(percentile(frameTimes, 0.99) / 1e6))
+                .append(", \"p999\": ").append(format(percentile(frameTimes, 0.999) / 1e6))
+                .append(", \"max\": ").append(format(percentile(frameTimes, 1.0) / 1e6))
+                .append("},\n");
+        if (allocationSupported) {
+            json.append("  \"allocation\": {")
+                    .append("\"bytes\": ").append(allocated)
+                    .append(", \"bytesPerSecond\": ").append(format(allocated / seconds))
+                    .append(", \"bytesPerFrame\": ").append(format((frames == 0)? 0.0 : (double) allocated / frames))
+                    .append("},\n");
+        } else {
+            json.append("  \"allocation\": null,\n");
+        }
+        json.append("  \"gc\": {")
+                .append("\"pauses\": ").append(gcCount)
+                .append(", \"totalPauseMillis\": ").append(gcTotal)
+                .append(", \"maxPauseMillis\": ").append(gcMax)
+                .append("}\n");
+        json.append("}");
+        System.out.println(json);
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0.0;
+        }
+        final int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.4f", value);
+    }
+
+    private void registerGcListeners() {
+        final NotificationListener listener = new NotificationListener() {
+            @Override
+            public void handleNotification(Notification notification, Object handback) {
+                if (measuring && GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                    final GarbageCollectionNotificationInfo info =
+                            GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+                    synchronized (gcPauses) {
+                        gcPauses.add(info.getGcInfo().getDuration());
+                    }
+                }
+            }
+        };
+        for (final GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (bean instanceof NotificationEmitter) {
+                ((NotificationEmitter) bean).addNotificationListener(listener, null, null);
+            }
+        }
+    }
+
+    private void createCrowd(Random random) {
+        final Bone[] caterpillarTemplate = createCaterpillar();
+        final RigDefinition caterpillarDefinition = RigDefinition.of(caterpillarTemplate[0]);
+        for (int i = 0; i < caterpillars; i++) {
+            final double originX = random.nextDouble() * 10 * RANGE;
+            final double originY = random.nextDouble() * 10 * RANGE;
+            final Effector head;
+            if (poses) {
+                head = new PoseEffector(new RigPose(caterpillarDefinition), 0, true);
+            } else {
+                head = new BoneEffector(createCaterpillar()[0], true);
+            }
+            head.moveTo(originX, originY);
+            drivers.add(createDriver(head, originX, originY, random));
+            boneCount += caterpillarDefinition.getBoneCount();
+        }
+
+        final Bone[] dummyTemplate = createDummy();
+        final RigDefinition dummyDefinition = RigDefinition.of(dummyTemplate[0]);
+        for (int i = 0; i < dummies; i++) {
+            final double originX = random.nextDouble() * 10 * RANGE;
+            final double originY = random.nextDouble() * 10 * RANGE;
+            final Bone[] dummy = poses? null : createDummy();
+            final RigPose pose = poses? new RigPose(dummyDefinition) : null;
+            // the last four bones are the lower arms and legs, whose tails are the hands and feet
+            for (int j = dummyTemplate.length - 4; j < dummyTemplate.length; j++) {
+                final Effector effector;
+                if (poses) {
+                    effector = new PoseEffector(pose, dummyDefinition.indexOf(dummyTemplate[j].getName()), false);
+                } else {
+                    effector = new BoneEffector(dummy[j], false);
+                }
+                drivers.add(createDriver(effector, originX + effector.getX(), originY + effector.getY(), random));
+            }
+            boneCount += dummyDefinition.getBoneCount();
+        }
+    }
+
+    private Driver createDriver(Effector effector, double originX, double originY, Random random) {
+        return scripted
+                ? new ScriptedDriver(effector, originX, originY, random.nextDouble() * 2 * Math.PI)
+                : new RandomDriver(effector, originX, originY, new Random(random.nextLong()));
+    }
+
+    private static Bone[] createCaterpillar() {
+        final Bone[] bones = new Bone[CATERPILLAR_SEGMENTS + 1];
+        bones[0] = new Bone(20);
+        for (int i = 1; i < bones.length; i++) {
+            bones[i] = new Bone(20, -60, 60);
+            bones[i - 1].getChildren().add(bones[i]);
+        }
+        return bones;
+    }
+
+    private static Bone[] createDummy() {
+        final Bone hook = new Bone(110, 90);
+        final Bone torso = new Bone(80, 180, 180, 180);
+        final Bone head = new Bone(30, 0, -30, 30);
+        hook.getChildren().add(torso);
+        torso.getChildren().add(head);
+        final Bone[] bones = new Bone[11];
+        bones[0] = hook;
+        bones[1] = torso;
+        bones[2] = head;
+        for (int i = 0; i < 2; i++) {
+            final Bone upperArm = new Bone(60, 150 - 270 * i);
+            final Bone lowerArm = new Bone(60, -90, -135, 0);
+            lowerArm.setName("lowerArm" + i);
+            final Bone upperLeg = new Bone(60, 30 - 90 * i, -90, 45);
+            final Bone lowerLeg = new Bone(75, 90, 0, 135);
+            lowerLeg.setName("lowerLeg" + i);
+            upperArm.getChildren().add(lowerArm);
+            torso.getChildren().add(upperArm);
+            upperLeg.getChildren().add(lowerLeg);
+            hook.getChildren().add(upperLeg);
+            bones[3 + 2 * i] = upperArm;
+            bones[4 + 2 * i] = upperLeg;
+            bones[7 + 2 * i] = lowerArm;
+            bones[8 + 2 * i] = lowerLeg;
+        }
+        return bones;
+    }
+
+    /**
+     * One end of a bone, which is moved by a {@link Driver}.
+     */
+    private interface Effector {
+        double getX();
+        double getY();
+        void moveTo(double x, double y);
+    }
+
+    private static final class BoneEffector implements Effector {
+        private final Bone bone;
+        private final boolean head;
+
+        private BoneEffector(Bone bone, boolean head) {
+            this.bone = bone;
+            this.head = head;
+        }
+
+        @Override
+        public double getX() {
+            return head? bone.getCurrentHead().getX() : bone.getCurrentTail().getX();
+        }
+
+        @Override
+        public double getY() {
+            return head? bone.getCurrentHead().getY() : bone.getCurrentTail().getY();
+        }
+
+        @Override
+        public void moveTo(double x, double y) {
+            if (head) {
+                bone.moveHead(x, y);
+            } else {
+                bone.moveTail(x, y);
+            }
+        }
+    }
+
+    private static final class PoseEffector implements Effector {
+        private final RigPose pose;
+        private final int bone;
+        private final boolean head;
+
+        private PoseEffector(RigPose pose, int bone, boolean head) {
+            this.pose = pose;
+            this.bone = bone;
+            this.head = head;
+        }
+
+        @Override
+        public double getX() {
+            return head? pose.getHeadX(bone) : pose.getTailX(bone);
+        }
+
+        @Override
+        public double getY() {
+            return head? pose.getHeadY(bone) : pose.getTailY(bone);
+        }
+
+        @Override
+        public void moveTo(double x, double y) {
+            if (head) {
+                pose.moveHead(bone, x, y);
+            } else {
+                pose.moveTail(bone, x, y);
+            }
+        }
+    }
+
+    private abstract static class Driver {
+        protected final Effector effector;
+        protected final double originX;
+        protected final double originY;
+
+        private Driver(Effector effector, double originX, double originY) {
+            this.effector = effector;
+            this.originX = originX;
+            this.originY = originY;
+        }
+
+        abstract void update(double time);
+    }
+
+    /**
+     * Moves an {@link Effector} linearly towards random targets around its
+     * origin, like {@code TranslateHeadTransition} and
+     * {@code TranslateTailTransition} do.
+     */
+    private static final class RandomDriver extends Driver {
+        private final Random random;
+        private double fromX;
+        private double fromY;
+        private double byX;
+        private double byY;
+        private double start;
+        private double length;
+
+        private RandomDriver(Effector effector, double originX, double originY, Random random) {
+            super(effector, originX, originY);
+            this.random = random;
+        }
+
+        @Override
+        void update(double time) {
+            if (time >= start + length) {
+                fromX = effector.getX();
+                fromY = effector.getY();
+                byX = originX + (2 * random.nextDouble() - 1) * RANGE - fromX;
+                byY = originY + (2 * random.nextDouble() - 1) * RANGE - fromY;
+                start = time;
+                length = SLOWDOWN * Math.hypot(byX, byY) / 1000.0;
+            }
+            final double v = (length == 0.0)? 1.0 : Math.min((time - start) / length, 1.0);
+            effector.moveTo(fromX + v * byX, fromY + v * byY);
+        }
+    }
+
+    /**
+     * Moves an {@link Effector} along a Lissajous curve around its origin.
+     */
+    private static final class ScriptedDriver extends Driver {
+        private final double phase;
+
+        private ScriptedDriver(Effector effector, double originX, double originY, double phase) {
+            super(effector, originX, originY);
+            this.phase = phase;
+        }
+
+        @Override
+        void update(double time) {
+            effector.moveTo(originX + RANGE * Math.sin(time + phase), originY + 0.5 * RANGE * Math.sin(2 * time + phase));
+        }
+    }
+}
@@ -17,9 +17,13 @@
 package com.netopyr.javafx.ik.samples;
 
 import com.netopyr.javafx.ik.Bone;
+import com.netopyr.javafx.ik.BoneEnd;
+import com.netopyr.javafx.ik.BonePick;
+import com.netopyr.javafx.ik.ChainSolver;
 import com.netopyr.javafx.ik.Skeleton;
 import javafx.application.Application;
 import javafx.event.EventHandler;
+import javafx.geometry.Point2D;
 import javafx.scene.Node;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
@@ -28,10 +32,14 @@ import javafx.scene.shape.Circle;
 import javafx.scene.shape.Ellipse;
 import javafx.stage.Stage;
 
+import java.util.HashMap;
+import java.util.Map;
+
 public class Dummy extends Application {
 
     private static final int WIDTH = 1280;
     private static final int HEIGHT = 800;
+    private static final double PICK_DISTANCE = 25;
 
     @Override
     public void start(Stage stage) throws Exception {
@@ -49,72 +57,85 @@ public class Dummy extends Application {
         final Skeleton skeleton = new Skeleton();
 
         final Bone hook = new Bone(110, 90);
+        hook.setPickable(false);
         hook.setSkeleton(skeleton);
 
         final Bone torso = new Bone(80, 180, 180, 180);
+        torso.setPickable(false);
         torso.getContent().add(new Ellipse(40, 0, 50, 20));
         hook.getChildren().add(torso);
 
         final Bone head = new Bone(30, 0, -30, 30);
-        final Node headNode = new Ellipse(30, 0, 20, 15);
-        headNode.setOnMouseDragged(new EventHandler<MouseEvent>() {
-            @Override
-            public void handle(MouseEvent event) {
-                head.moveTail(skeleton.sceneToLocal(event.getSceneX(), event.getSceneY()));
-            }
-        });
-        head.getContent().setAll(headNode);
+        head.getContent().setAll(new Ellipse(30, 0, 20, 15));
         torso.getChildren().add(head);
 
         final Bone[] upperArm = new Bone[2];
+        final Bone[] lowerArm = new Bone[2];
         final Bone[] upperLeg = new Bone[2];
+        final Bone[] lowerLeg = new Bone[2];
 
         for (int i=0; i<2; i++) {
             upperArm[i] = new Bone(60, 150 - 270 * i);
             upperArm[i].getContent().setAll(new Ellipse(22.5, 0, 30, 12.5));
 
-            final Bone lowerArm = new Bone(60, -90, -135, 0);
-            upperArm[i].getChildren().add(lowerArm);
+            lowerArm[i] = new Bone(60, -90, -135, 0);
+            upperArm[i].getChildren().add(lowerArm[i]);
             final Node elbow = new Circle(12.5);
-            elbow.setOnMouseDragged(new EventHandler<MouseEvent>() {
-                @Override
-                public void handle(MouseEvent event) {
-                    lowerArm.moveHead(skeleton.sceneToLocal(event.getSceneX(), event.getSceneY()));
-                }
-            });
             final Node hand = new Circle(60, 0, 12.5);
-            hand.setOnMouseDragged(new EventHandler<MouseEvent>() {
-                @Override
-                public void handle(MouseEvent event) {
-                    lowerArm.moveTail(skeleton.sceneToLocal(event.getSceneX(), event.getSceneY()));
-                }
-            });
-            lowerArm.getContent().setAll(elbow, new Ellipse(30, 0, 20, 12.5), hand);
+            lowerArm[i].getContent().setAll(elbow, new Ellipse(30, 0, 20, 12.5), hand);
 
             upperLeg[i] = new Bone(60, 30 - 90*i, -90, 45);
             upperLeg[i].getContent().setAll(new Ellipse(20, 0, 30, 15));
 
-            final Bone lowerLeg = new Bone(75, 90, 0, 135);
-            upperLeg[i].getChildren().add(lowerLeg);
+            lowerLeg[i] = new Bone(75, 90, 0, 135);
+            upperLeg[i].getChildren().add(lowerLeg[i]);
             final Node knee = new Circle(15);
-            knee.setOnMouseDragged(new EventHandler<MouseEvent>() {
-                @Override
-                public void handle(MouseEvent event) {
-                    lowerLeg.moveHead(skeleton.sceneToLocal(event.getSceneX(), event.getSceneY()));
-                }
-            });
             final Node foot = new Ellipse(75, -10, 10, 22.5);
-            foot.setOnMouseDragged(new EventHandler<MouseEvent>() {
-                @Override
-                public void handle(MouseEvent event) {
-                    lowerLeg.moveTail(skeleton.sceneToLocal(event.getSceneX(), event.getSceneY()));
-                }
-            });
-            lowerLeg.getContent().setAll(knee, new Ellipse(40, 0, 30, 15), foot);
+            lowerLeg[i].getContent().setAll(knee, new Ellipse(40, 0, 30, 15), foot);
         }
         torso.getChildren().addAll(upperArm);
         hook.getChildren().addAll(upperLeg);
 
+        // hands and feet are solved in closed form, only the upper and the lower bone of the limb rotate
+        final Map<Bone, ChainSolver> limbs = new HashMap<>();
+        for (int i=0; i<2; i++) {
+            limbs.put(lowerArm[i], new ChainSolver(upperArm[i], lowerArm[i]));
+            limbs.put(lowerLeg[i], new ChainSolver(upperLeg[i], lowerLeg[i]));
+        }
+
+        // a single handler drags the closest joint, which is always the tail of a pickable bone
+        // elbows and knees are dragged by the head of the lower bone, the upper bone follows
+        // all other drag events are posted, so several events within one pulse result in a single solve
+        final EventHandler<MouseEvent> dragHandler = new EventHandler<MouseEvent>() {
+            private Bone bone;
+            private BoneEnd end;
+            private ChainSolver solver;
+
+            @Override
+            public void handle(MouseEvent event) {
+                final Point2D point = skeleton.sceneToLocal(event.getSceneX(), event.getSceneY());
+                if (MouseEvent.MOUSE_PRESSED.equals(event.getEventType())) {
+                    final BonePick pick = skeleton.pickJoint(point.getX(), point.getY(), PICK_DISTANCE, BoneEnd.TAIL);
+                    if (pick == null) {
+                        bone = null;
+                    } else if (pick.getBone().getChildren().size() == 1) {
+                        bone = pick.getBone().getChildren().get(0);
+                        end = BoneEnd.HEAD;
+                    } else {
+                        bone = pick.getBone();
+                        end = BoneEnd.TAIL;
+                    }
+                    solver = ((bone == null) || (end != BoneEnd.TAIL))? null : limbs.get(bone);
+                } else if (solver != null) {
+                    solver.solve(point.getX(), point.getY());
+                } else if (bone != null) {
+                    skeleton.postTarget(bone, end, point.getX(), point.getY());
+                }
+            }
+        };
+        skeleton.setOnMousePressed(dragHandler);
+        skeleton.setOnMouseDragged(dragHandler);
+
         return skeleton;
     }
 
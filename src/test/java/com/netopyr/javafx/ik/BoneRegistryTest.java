@@ -0,0 +1,116 @@
+/*
+ * Copyright 2013 Michael Heinrichs, http://netopyr.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netopyr.javafx.ik;
+
+import junit.framework.TestCase;
+
+public class BoneRegistryTest extends TestCase {
+
+    private BoneRegistry registry;
+
+    @Override
+    protected void setUp() {
+        registry = new BoneRegistry();
+    }
+
+    private Bone register(String name) {
+        final Bone bone = new Bone(10);
+        bone.setName(name);
+        bone.setId(registry.add(bone));
+        return bone;
+    }
+
+    private void unregister(Bone bone) {
+        registry.remove(bone);
+        bone.setId(-1);
+    }
+
+    public void testIdsAreDense() {
+        for (int i = 0; i < 40; i++) {
+            final Bone bone = register(null);
+            assertEquals(i, bone.getId());
+            assertSame(bone, registry.get(i));
+        }
+        assertEquals(40, registry.getCapacity());
+    }
+
+    public void testIdsOfRemovedBonesAreReused() {
+        final Bone first = register(null);
+        final Bone second = register(null);
+        final Bone third = register(null);
+        final int id = second.getId();
+
+        unregister(second);
+        assertNull(registry.get(id));
+
+        final Bone fourth = register(null);
+        assertEquals(id, fourth.getId());
+        assertSame(fourth, registry.get(id));
+        assertSame(first, registry.get(first.getId()));
+        assertSame(third, registry.get(third.getId()));
+        assertEquals(3, registry.getCapacity());
+    }
+
+    public void testUnknownIds() {
+        register(null);
+        assertNull(registry.get(-1));
+        assertNull(registry.get(1));
+        assertNull(registry.get(100));
+    }
+
+    public void testLookupByName() {
+        final Bone arm = register("arm");
+        final Bone leg = register("leg");
+        assertSame(arm, registry.get("arm"));
+        assertSame(leg, registry.get("leg"));
+        assertNull(registry.get("head"));
+    }
+
+    public void testRename() {
+        final Bone bone = register("arm");
+        bone.setName("leg");
+        registry.rename(bone, "arm", "leg");
+        assertNull(registry.get("arm"));
+        assertSame(bone, registry.get("leg"));
+    }
+
+    public void testDuplicateNameSurvivesRemovalOfFirstOwner() {
+        final Bone first = register("n");
+        final Bone second = register("n");
+        assertSame(first, registry.get("n"));
+
+        unregister(first);
+        assertSame(second, registry.get("n"));
+
+        unregister(second);
+        assertNull(registry.get("n"));
+    }
+
+    public void testDuplicateNameSurvivesRenameOfFirstOwner() {
+        final Bone first = register("n");
+        final Bone second = register("n");
+
+        first.setName("m");
+        registry.rename(first, "n", "m");
+        assertSame(second, registry.get("n"));
+        assertSame(first, registry.get("m"));
+
+        first.setName("n");
+        registry.rename(first, "m", "n");
+        assertSame(second, registry.get("n"));
+    }
+}
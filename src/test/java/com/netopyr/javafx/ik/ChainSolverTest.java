@@ -0,0 +1,154 @@
+/*
+ * Copyright 2013 Michael Heinrichs, http://netopyr.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netopyr.javafx.ik;
+
+import javafx.geometry.Point2D;
+import junit.framework.TestCase;
+
+public class ChainSolverTest extends TestCase {
+
+    private static final double EPSILON = 1e-9;
+
+    private Skeleton skeleton;
+    private Bone upper;
+    private Bone lower;
+
+    @Override
+    protected void setUp() {
+        skeleton = new Skeleton();
+        upper = new Bone(100, 0);
+        upper.setSkeleton(skeleton);
+        lower = new Bone(80, 0);
+        upper.getChildren().add(lower);
+    }
+
+    public void testTwoBoneSolutionIsExact() {
+        final SolveResult result = new ChainSolver(upper, lower).solve(120, 60);
+
+        assertTrue(result.isConverged());
+        assertEquals(1, result.getIterations());
+        assertEquals(0.0, lower.getCurrentTail().distance(120, 60), EPSILON);
+        assertEquals(0.0, upper.getCurrentHead().distance(0, 0), EPSILON);
+        assertEquals(100.0, upper.getCurrentTail().distance(upper.getCurrentHead()), EPSILON);
+        assertEquals(80.0, lower.getCurrentTail().distance(lower.getCurrentHead()), EPSILON);
+    }
+
+    public void testBendDirection() {
+        final ChainSolver solver = new ChainSolver(upper, lower);
+
+        solver.setBendDirection(BendDirection.POSITIVE);
+        solver.solve(120, 60);
+        assertTrue(lower.getAngle() > 0.0);
+        assertEquals(0.0, lower.getCurrentTail().distance(120, 60), EPSILON);
+
+        solver.setBendDirection(BendDirection.NEGATIVE);
+        solver.solve(120, 61);
+        assertTrue(lower.getAngle() < 0.0);
+        assertEquals(0.0, lower.getCurrentTail().distance(120, 61), EPSILON);
+    }
+
+    public void testLimitsAreHonored() {
+        final Bone limited = new Bone(80, 0, -30, 30);
+        upper.getChildren().setAll(limited);
+        final ChainSolver solver = new ChainSolver(upper, limited);
+
+        // reaching the target would require an angle of about 138 degrees
+        final SolveResult result = solver.solve(60, 30);
+        assertFalse(result.isConverged());
+        assertTrue(limited.getAngle() >= -30.0);
+        assertTrue(limited.getAngle() <= 30.0);
+        assertEquals(result.getResidual(), limited.getCurrentTail().distance(60, 30), EPSILON);
+    }
+
+    public void testOutOfReachTargetStretchesChain() {
+        final SolveResult result = new ChainSolver(upper, lower).solve(300, 400);
+
+        assertFalse(result.isConverged());
+        assertEquals(320.0, result.getResidual(), EPSILON);
+        assertEquals(0.0, lower.getAngle(), EPSILON);
+        final Point2D tail = lower.getCurrentTail();
+        assertEquals(108.0, tail.getX(), EPSILON);
+        assertEquals(144.0, tail.getY(), EPSILON);
+    }
+
+    public void testTargetWithinInnerRadiusIsMovedOntoIt() {
+        final ChainSolver solver = new ChainSolver(upper, lower);
+
+        // the chain cannot fold closer to the anchor than 2 * 100 - 180 = 20
+        SolveResult result = solver.solve(5, 0);
+        assertFalse(result.isConverged());
+        assertEquals(15.0, result.getResidual(), EPSILON);
+        assertEquals(0.0, lower.getCurrentTail().distance(20, 0), EPSILON);
+
+        result = solver.solve(10, 0);
+        assertFalse(result.isConverged());
+        assertEquals(0, result.getIterations());
+        assertEquals(10.0, result.getResidual(), EPSILON);
+    }
+
+    public void testTargetWithinToleranceIsSkipped() {
+        final ChainSolver solver = new ChainSolver(upper, lower);
+        final SolveResult result = solver.solve(180.0 + solver.getTolerance() / 2, 0);
+
+        assertTrue(result.isConverged());
+        assertEquals(0, result.getIterations());
+    }
+
+    public void testUnreachableTargetIsNotSolvedAgain() {
+        final ChainSolver solver = new ChainSolver(upper, lower);
+        solver.solve(300, 400);
+
+        final SolveResult result = solver.solve(300, 400 + solver.getTolerance() / 2);
+        assertFalse(result.isConverged());
+        assertEquals(0, result.getIterations());
+    }
+
+    public void testSlowlyDriftingTargetIsSolvedAgain() {
+        final ChainSolver solver = new ChainSolver(upper, lower);
+        solver.solve(300, 0);
+        assertEquals(180.0, lower.getCurrentTail().getX(), EPSILON);
+
+        // every step is below the tolerance, but the total drift is not
+        for (int i = 1; i <= 500; i++) {
+            solver.solve(300, 0.4 * i);
+        }
+        final Point2D tail = lower.getCurrentTail();
+        assertEquals(0.0, Math.atan2(tail.getY(), tail.getX()) - Math.atan2(200, 300), 1e-2);
+        assertTrue(upper.getRotate() > 30.0);
+    }
+
+    public void testSolveContinuesAfterRunningOutOfIterations() {
+        Bone effector = lower;
+        for (int i = 0; i < 4; i++) {
+            final Bone bone = new Bone(50, 0);
+            effector.getChildren().add(bone);
+            effector = bone;
+        }
+        final ChainSolver solver = new ChainSolver(upper, effector);
+        solver.setMaxIterations(1);
+
+        SolveResult result = solver.solve(100, 120);
+        assertFalse(result.isConverged());
+        for (int i = 0; i < 20 && !result.isConverged(); i++) {
+            final double residual = result.getResidual();
+            result = solver.solve(100, 120);
+            assertEquals(1, result.getIterations());
+            assertTrue(result.getResidual() < residual);
+        }
+        assertTrue(result.isConverged());
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2013 Michael Heinrichs, http://netopyr.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netopyr.javafx.ik;
+
+import junit.framework.TestCase;
+
+import java.util.Random;
+
+public class RigPoseTest extends TestCase {
+
+    private static final double EPSILON = 1e-9;
+
+    private RigDefinition definition;
+
+    @Override
+    protected void setUp() {
+        // a hook with torso, head, two arms and two legs like in the Dummy sample
+        definition = new RigDefinition(
+                new int[]    {-1,   0,   1,   1,   3,    1,   5,   0,  7,   0,  9},
+                new double[] {110, 80,  30,  60,  60,   60,  60,  60, 75,  60, 75},
+                new double[] {90, 180,   0, 150, -90, -120, -90,  30, 90, -60, 90},
+                new double[] {-180, 180, -30, -180, -135, -180, -135, -90, 0, -90, 0},
+                new double[] {180, 180,  30, 180,   0,  180,   0,  45, 135, 45, 135},
+                new String[] {"b0", "b1", "b2", "b3", "b4", "b5", "b6", "b7", "b8", "b9", "b10"});
+    }
+
+    public void testRestPoseMatchesSkeleton() {
+        final Skeleton skeleton = definition.createSkeleton();
+        assertSamePose(skeleton, new RigPose(definition));
+    }
+
+    public void testMovesMatchSkeleton() {
+        final Skeleton skeleton = definition.createSkeleton();
+        final RigPose pose = new RigPose(definition);
+        final Random random = new Random(9);
+        for (int i = 0; i < 2000; i++) {
+            final int index = random.nextInt(definition.getBoneCount());
+            final Bone bone = skeleton.getBone(definition.getName(index));
+            final double x = random.nextInt(400) - 200;
+            final double y = random.nextInt(400) - 200;
+            if (random.nextBoolean()) {
+                bone.moveTail(x, y);
+                pose.moveTail(index, x, y);
+            } else {
+                bone.moveHead(x, y);
+                pose.moveHead(index, x, y);
+            }
+            assertSamePose(skeleton, pose);
+        }
+    }
+
+    public void testSecondViewIsRejected() {
+        final RigPose pose = new RigPose(definition);
+        new RigView(pose);
+        try {
+            new RigView(pose);
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    private void assertSamePose(Skeleton skeleton, RigPose pose) {
+        for (int i = 0; i < definition.getBoneCount(); i++) {
+            final Bone bone = skeleton.getBone(definition.getName(i));
+            assertEquals(bone.getCurrentHead().getX(), pose.getHeadX(i), EPSILON);
+            assertEquals(bone.getCurrentHead().getY(), pose.getHeadY(i), EPSILON);
+            assertEquals(bone.getCurrentTail().getX(), pose.getTailX(i), EPSILON);
+            assertEquals(bone.getCurrentTail().getY(), pose.getTailY(i), EPSILON);
+            assertEquals(bone.getRotate(), pose.getRotate(i), EPSILON);
+            assertEquals(bone.getAngle(), pose.getAngle(i), EPSILON);
+        }
+    }
+}
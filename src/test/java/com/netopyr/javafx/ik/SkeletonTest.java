@@ -0,0 +1,98 @@
+/*
+ * Copyright 2013 Michael Heinrichs, http://netopyr.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netopyr.javafx.ik;
+
+import javafx.scene.Group;
+import javafx.scene.Node;
+import javafx.scene.shape.Rectangle;
+import junit.framework.TestCase;
+
+import java.util.List;
+
+public class SkeletonTest extends TestCase {
+
+    private Skeleton skeleton;
+    private Bone root;
+
+    @Override
+    protected void setUp() {
+        skeleton = new Skeleton();
+        root = new Bone(10);
+        root.setSkeleton(skeleton);
+    }
+
+    private Bone addChild(Bone parent, String name) {
+        final Bone bone = new Bone(10);
+        bone.setName(name);
+        bone.getContent().add(new Rectangle(10, 10));
+        parent.getChildren().add(bone);
+        return bone;
+    }
+
+    private void assertDrawingOrder(Bone... expected) {
+        final List<Node> children = skeleton.getChildrenUnmodifiable();
+        assertEquals(expected.length, children.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertSame(expected[i].getContent().get(0), ((Group) children.get(i)).getChildren().get(0));
+        }
+    }
+
+    public void testRemovingBoneKeepsDrawingOrder() {
+        final Bone n0 = addChild(root, "n0");
+        final Bone n1 = addChild(root, "n1");
+        final Bone n2 = addChild(root, "n2");
+        assertDrawingOrder(n0, n1, n2);
+
+        root.getChildren().remove(n0);
+        n0.setSkeleton(null);
+        assertDrawingOrder(n1, n2);
+        assertSame(n1, skeleton.getBone("n1"));
+        assertSame(n2, skeleton.getBone("n2"));
+        assertNull(skeleton.getBone("n0"));
+    }
+
+    public void testRemovingSubtreeKeepsDrawingOrder() {
+        final Bone n0 = addChild(root, "n0");
+        final Bone n1 = addChild(n0, "n1");
+        final Bone n2 = addChild(root, "n2");
+        final Bone n3 = addChild(n1, "n3");
+        final Bone n4 = addChild(root, "n4");
+        assertDrawingOrder(n0, n1, n2, n3, n4);
+
+        root.getChildren().remove(n0);
+        n0.setSkeleton(null);
+        assertDrawingOrder(n2, n4);
+        assertEquals(3, skeleton.getBones().size());
+
+        final Bone n5 = addChild(root, "n5");
+        assertDrawingOrder(n2, n4, n5);
+    }
+
+    public void testChainLength() {
+        final Bone n0 = addChild(root, "n0");
+        final Bone n1 = addChild(n0, "n1");
+        final Bone n2 = addChild(root, "n2");
+
+        assertEquals(30.0, skeleton.getChainLength(root, n1));
+        assertEquals(10.0, skeleton.getChainLength(n2, n2));
+        try {
+            skeleton.getChainLength(n0, n2);
+            fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2013 Michael Heinrichs, http://netopyr.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.netopyr.javafx.ik;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class SpatialIndexTest extends TestCase {
+
+    private static final double EPSILON = 1e-9;
+
+    private Skeleton skeleton;
+    private Bone root;
+    private Bone child;
+
+    @Override
+    protected void setUp() {
+        skeleton = new Skeleton();
+        root = new Bone(100, 0);
+        root.setSkeleton(skeleton);
+        child = new Bone(100, 90);
+        root.getChildren().add(child);
+    }
+
+    public void testNearestJoint() {
+        final BonePick pick = skeleton.pickJoint(97, 4, 10);
+        assertNotNull(pick);
+        assertEquals(5.0, pick.getDistance(), EPSILON);
+        assertEquals(100.0, pick.getPoint().getX(), EPSILON);
+        assertEquals(0.0, pick.getPoint().getY(), EPSILON);
+    }
+
+    public void testNearestJointRestrictedToEnd() {
+        final BonePick pick = skeleton.pickJoint(100, 0, 10, BoneEnd.HEAD);
+        assertSame(child, pick.getBone());
+        assertEquals(BoneEnd.HEAD, pick.getEnd());
+
+        final BonePick tail = skeleton.pickJoint(100, 0, 10, BoneEnd.TAIL);
+        assertSame(root, tail.getBone());
+        assertEquals(BoneEnd.TAIL, tail.getEnd());
+    }
+
+    public void testNearestSegment() {
+        final BonePick pick = skeleton.pickBone(104, 50, 10);
+        assertSame(child, pick.getBone());
+        assertNull(pick.getEnd());
+        assertEquals(4.0, pick.getDistance(), EPSILON);
+        assertEquals(100.0, pick.getPoint().getX(), EPSILON);
+        assertEquals(50.0, pick.getPoint().getY(), EPSILON);
+    }
+
+    public void testNothingWithinDistance() {
+        assertNull(skeleton.pickJoint(300, 300, 10));
+        assertNull(skeleton.pickBone(300, 300, 10));
+    }
+
+    public void testPickAfterMove() {
+        assertNotNull(skeleton.pickJoint(100, 100, 1, BoneEnd.TAIL));
+
+        child.moveTail(200, 0);
+        assertNull(skeleton.pickJoint(100, 100, 1, BoneEnd.TAIL));
+        final BonePick joint = skeleton.pickJoint(200, 0, 1, BoneEnd.TAIL);
+        assertSame(child, joint.getBone());
+
+        final BonePick segment = skeleton.pickBone(150, 2, 5);
+        assertSame(child, segment.getBone());
+        assertEquals(2.0, segment.getDistance(), EPSILON);
+    }
+
+    public void testBonesThatAreNotPickable() {
+        child.setPickable(false);
+        assertNull(skeleton.pickJoint(100, 100, 1));
+        assertSame(root, skeleton.pickBone(100, 50, 60).getBone());
+    }
+
+    public void testRemovedBones() {
+        root.getChildren().remove(child);
+        child.setSkeleton(null);
+        assertNull(skeleton.pickJoint(100, 100, 1));
+        assertNull(skeleton.pickBone(100, 50, 10));
+    }
+
+    public void testMatchesExhaustiveSearch() {
+        final Random random = new Random(42);
+        final List<Bone> bones = new ArrayList<>();
+        bones.add(root);
+        bones.add(child);
+        for (int i = 0; i < 500; i++) {
+            final Bone bone = new Bone(5 + random.nextInt(30), random.nextInt(360) - 180);
+            bones.get(random.nextInt(bones.size())).getChildren().add(bone);
+            bones.add(bone);
+        }
+
+        for (int i = 0; i < 500; i++) {
+            if (i % 10 == 0) {
+                bones.get(random.nextInt(bones.size())).moveTail(random.nextInt(400) - 200, random.nextInt(400) - 200);
+            }
+            final double x = random.nextInt(400) - 200;
+            final double y = random.nextInt(400) - 200;
+            final double distance = random.nextInt(50);
+
+            double jointDistance = Double.POSITIVE_INFINITY;
+            double segmentDistance = Double.POSITIVE_INFINITY;
+            for (final Bone bone : bones) {
+                jointDistance = Math.min(jointDistance, bone.getCurrentHead().distance(x, y));
+                jointDistance = Math.min(jointDistance, bone.getCurrentTail().distance(x, y));
+                segmentDistance = Math.min(segmentDistance, distanceToSegment(bone, x, y));
+            }
+
+            final BonePick joint = skeleton.pickJoint(x, y, distance);
+            if (jointDistance <= distance) {
+                assertEquals(jointDistance, joint.getDistance(), EPSILON);
+            } else {
+                assertNull(joint);
+            }
+
+            final BonePick segment = skeleton.pickBone(x, y, distance);
+            if (segmentDistance <= distance) {
+                assertEquals(segmentDistance, segment.getDistance(), EPSILON);
+            } else {
+                assertNull(segment);
+            }
+        }
+    }
+
+    private static double distanceToSegment(Bone bone, double x, double y) {
+        final double hx = bone.getCurrentHead().getX();
+        final double hy = bone.getCurrentHead().getY();
+        final double dx = bone.getCurrentTail().getX() - hx;
+        final double dy = bone.getCurrentTail().getY() - hy;
+        final double t = Math.max(0.0, Math.min(((x - hx) * dx + (y - hy) * dy) / (dx * dx + dy * dy), 1.0));
+        return Math.hypot(x - hx - t * dx, y - hy - t * dy);
+    }
+}